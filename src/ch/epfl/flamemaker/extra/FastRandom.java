@@ -0,0 +1,157 @@
+package ch.epfl.flamemaker.extra;
+
+import java.util.Random;
+
+/**
+ * A fast pseudo-random generator of the xoroshiro128++ family, to be used in
+ * place of {@link Random} in the chaos game
+ * <p>
+ * Unlike {@link Random}, it is not thread-safe: every thread must have its own
+ * generator, which is obtained with {@link #split()} from a common one. The
+ * state is seeded with SplitMix64, so that even close seeds give independent
+ * sequences.
+ * </p>
+ */
+public final class FastRandom {
+
+	/**
+	 * The increment of SplitMix64 (the golden ratio)
+	 */
+	private static final long	GOLDEN_GAMMA	= 0x9e3779b97f4a7c15L;
+
+	/**
+	 * Used to give a different seed to every generator constructed
+	 * without one
+	 */
+	private static long		unique		= System.nanoTime();
+
+	/**
+	 * The first half of the state
+	 */
+	private long			s0;
+
+	/**
+	 * The second half of the state
+	 */
+	private long			s1;
+
+	/**
+	 * Return the mix of the given value by SplitMix64
+	 * 
+	 * @param z
+	 *                The value to mix
+	 * 
+	 * @return The mixed value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Return a new seed, different for every call
+	 * 
+	 * @return A new seed
+	 */
+	private static synchronized long uniqueSeed() {
+		FastRandom.unique += FastRandom.GOLDEN_GAMMA;
+		return FastRandom.unique ^ System.nanoTime();
+	}
+
+	/**
+	 * Construct a {@link FastRandom} with a seed different from every
+	 * other {@link FastRandom}
+	 */
+	public FastRandom() {
+		this(FastRandom.uniqueSeed());
+	}
+
+	/**
+	 * Construct a {@link FastRandom} with the given seed, two generators
+	 * with the same seed will give the same sequence
+	 * 
+	 * @param seed
+	 *                The seed of the generator
+	 */
+	public FastRandom(final long seed) {
+		this.s0 = FastRandom.mix(seed + FastRandom.GOLDEN_GAMMA);
+		this.s1 = FastRandom.mix(seed + 2 * FastRandom.GOLDEN_GAMMA);
+
+		// the state must never be only zeros
+		if ((this.s0 | this.s1) == 0) {
+			this.s1 = FastRandom.GOLDEN_GAMMA;
+		}
+	}
+
+	/**
+	 * Return a double uniformly distributed between 0 (inclusive) and 1
+	 * (exclusive)
+	 * 
+	 * @return A double between 0 (inclusive) and 1 (exclusive)
+	 */
+	public double nextDouble() {
+		return (this.nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Return an int uniformly distributed between 0 (inclusive) and the
+	 * given bound (exclusive)
+	 * <p>
+	 * It uses the multiply-shift of Lemire instead of a modulo, so that
+	 * in most cases there is no division at all
+	 * </p>
+	 * 
+	 * @param bound
+	 *                The upper bound (exclusive)
+	 * 
+	 * @return An int between 0 (inclusive) and bound (exclusive)
+	 * 
+	 * @throws IllegalArgumentException
+	 *                 if the bound is less or equal to zero
+	 */
+	public int nextInt(final int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException();
+		}
+
+		long m = (this.nextLong() >>> 32) * bound;
+		if ((m & 0xffffffffL) < bound) {
+
+			// reject the few values which would bias the result
+			final long threshold = (0x100000000L - bound) % bound;
+			while ((m & 0xffffffffL) < threshold) {
+				m = (this.nextLong() >>> 32) * bound;
+			}
+		}
+
+		return (int) (m >>> 32);
+	}
+
+	/**
+	 * Return the next 64 bits of the sequence
+	 * 
+	 * @return The next 64 bits of the sequence
+	 */
+	public long nextLong() {
+		final long s0 = this.s0;
+		long s1 = this.s1;
+		final long result = Long.rotateLeft(s0 + s1, 17) + s0;
+
+		s1 ^= s0;
+		this.s0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+		this.s1 = Long.rotateLeft(s1, 28);
+
+		return result;
+	}
+
+	/**
+	 * Return a new {@link FastRandom}, seeded by this one, which give a
+	 * sequence independent of this one (e.g. for another thread)
+	 * 
+	 * @return A new independent {@link FastRandom}
+	 */
+	public FastRandom split() {
+		return new FastRandom(this.nextLong());
+	}
+}
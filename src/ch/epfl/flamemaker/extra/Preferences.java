@@ -21,6 +21,7 @@ import ch.epfl.flamemaker.color.Palette;
 import ch.epfl.flamemaker.color.RandomPalette;
 import ch.epfl.flamemaker.flame.Flame;
 import ch.epfl.flamemaker.flame.FlameTransformation;
+import ch.epfl.flamemaker.flame.Precision;
 import ch.epfl.flamemaker.flame.Variation;
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
 import ch.epfl.flamemaker.geometry2d.Point;
@@ -74,6 +75,11 @@ public class Preferences {
 		 */
 		private final String			path;
 
+		/**
+		 * The precision of the numbers used to iterate the chaos game
+		 */
+		private Precision			precision;
+
 		/**
 		 * The time between every refresh of the fractal
 		 */
@@ -360,6 +366,27 @@ public class Preferences {
 			return new Point(values[0], values[1]);
 		}
 
+		/**
+		 * Return the {@link Precision} given by the formated
+		 * {@link String} as input, its name in any case
+		 * 
+		 * @param value
+		 *                The {@link String} to parse
+		 * 
+		 * @return The {@link Precision} with the given name
+		 * 
+		 * @throws IllegalArgumentException
+		 *                 if the {@link String} is not the name of a
+		 *                 {@link Precision}
+		 */
+		private static Precision parsePrecision(final String value) {
+			try {
+				return Precision.valueOf(value.toUpperCase());
+			} catch (final IllegalArgumentException e) {
+				throw new IllegalArgumentException("must be one of " + Arrays.toString(Precision.values()));
+			}
+		}
+
 		/**
 		 * Return a {@link Rectangle} with the given formated
 		 * {@link String} as input
@@ -515,6 +542,7 @@ public class Preferences {
 			this.palette = Preferences.defaults.palette;
 			this.frame = Preferences.defaults.frame;
 			this.density = Preferences.defaults.density;
+			this.precision = Preferences.defaults.precision;
 			this.step = Preferences.defaults.step;
 			this.refresh = Preferences.defaults.refresh;
 			this.threshold = Preferences.defaults.threshold;
@@ -585,7 +613,7 @@ public class Preferences {
 		 */
 		private Preferences build() {
 			return new Preferences(this.background, this.builder, this.density, this.frame, this.palette,
-					this.threads, this.refresh, this.step, this.threshold, this.path);
+					this.threads, this.precision, this.refresh, this.step, this.threshold, this.path);
 		}
 
 		/**
@@ -659,6 +687,10 @@ public class Preferences {
 							this.threads = Builder.parseInt(value);
 							break;
 
+						case "precision":
+							this.precision = Builder.parsePrecision(value);
+							break;
+
 						case "refresh":
 							this.refresh = Builder.parseInt(value);
 							break;
@@ -708,8 +740,9 @@ public class Preferences {
 												5, 4),
 										new InterpolatedPalette(Arrays.asList(
 												Color.RED, Color.GREEN,
-												Color.BLUE)), -1, 100,
-										-1, 10000, "flamefract.conf");
+												Color.BLUE)), -1,
+										Precision.DOUBLE, 100, -1, 10000,
+										"flamefract.conf");
 
 	/**
 	 * All the values of the {@link Preferences} set by the builder
@@ -741,6 +774,11 @@ public class Preferences {
 	 */
 	public final Palette			palette;
 
+	/**
+	 * The precision of the numbers used to iterate the chaos game
+	 */
+	public final Precision			precision;
+
 	/**
 	 * The time between every refresh of the fractal
 	 */
@@ -804,6 +842,11 @@ public class Preferences {
 			stream.println("threads = " + this.threads);
 		}
 		stream.println();
+		stream.println("# Precision of the numbers used to compute the points, \"double\", \"single\"");
+		stream.println("# or \"fast\" (approximated sine and cosine); the points of the last two slightly");
+		stream.println("# differ, see the Precision class");
+		stream.println("precision = " + this.precision.name().toLowerCase());
+		stream.println();
 		stream.println("# Color of the background (in RGB), values as double, min 0, max 1");
 		stream.println("# The magic word \"random\" will generate a color with random values (quite ugly)");
 		stream.println("color = " + this.background);
@@ -882,6 +925,9 @@ public class Preferences {
 	 *                The {@link Palette} we use to build the image
 	 * @param threads
 	 *                The number of {@link Thread} used in computation
+	 * @param precision
+	 *                The precision of the numbers used to iterate the chaos
+	 *                game
 	 * @param refresh
 	 *                The time between every refresh of the fractal
 	 * @param step
@@ -894,14 +940,15 @@ public class Preferences {
 	 *                The path to the configuation file
 	 */
 	public Preferences(final Color background, final ObservableFlameBuilder builder, final int density,
-			final Rectangle frame, final Palette palette, final int threads, final int refresh,
-			final int step, final int threshold, final String path) {
+			final Rectangle frame, final Palette palette, final int threads, final Precision precision,
+			final int refresh, final int step, final int threshold, final String path) {
 		this.background = background;
 		this.builder = new ObservableFlameBuilder(builder);
 		this.density = density;
 		this.frame = frame;
 		this.palette = palette;
 		this.threads = threads;
+		this.precision = precision;
 		this.refresh = refresh;
 		this.step = step;
 		this.threshold = threshold;
@@ -922,6 +969,7 @@ public class Preferences {
 		this.frame = pref.frame;
 		this.palette = pref.palette;
 		this.threads = pref.threads;
+		this.precision = pref.precision;
 		this.refresh = pref.refresh;
 		this.step = pref.step;
 		this.threshold = pref.threshold;
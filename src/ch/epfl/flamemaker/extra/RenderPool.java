@@ -0,0 +1,137 @@
+package ch.epfl.flamemaker.extra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A pool of threads living as long as the program, shared by every
+ * computation, so that a computation does not have to create and join its own
+ * threads every time (e.g. on every refresh of the preview)
+ * <p>
+ * It has {@link Preferences#threads} threads, which are daemons, thus they do
+ * not prevent the program from exiting
+ * </p>
+ */
+public final class RenderPool {
+
+	/**
+	 * Create the daemon threads of the pool
+	 */
+	private static class Factory implements ThreadFactory {
+
+		/**
+		 * The number of threads created
+		 */
+		private int	count;
+
+		@Override
+		public synchronized Thread newThread(final Runnable r) {
+			final Thread thread = new Worker(r, "render-" + this.count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * A thread of the pool, recognized to not wait for the pool from
+	 * inside it
+	 */
+	private static class Worker extends Thread {
+
+		/**
+		 * Construct a thread of the pool running the given task
+		 * 
+		 * @param target
+		 *                The task of the thread
+		 * @param name
+		 *                The name of the thread
+		 */
+		public Worker(final Runnable target, final String name) {
+			super(target, name);
+		}
+	}
+
+	/**
+	 * The executor running the tasks
+	 */
+	private static final ExecutorService	executor	= Executors.newFixedThreadPool(
+										Preferences.values.threads,
+										new Factory());
+
+	/**
+	 * Run the given tasks on the threads of the pool and wait for all of
+	 * them to end
+	 * <p>
+	 * If called from a thread of the pool, the tasks are run one after the
+	 * other by the calling thread, as waiting for other tasks of the pool
+	 * could block it forever
+	 * </p>
+	 * <p>
+	 * Every task has ended when this method returns or throws, even if the
+	 * calling thread is interrupted or a task fails, as the tasks write
+	 * into data the caller uses afterwards. An interruption does not stop
+	 * the waiting: the interrupt status of the calling thread is set again
+	 * before returning, for the caller to check it.
+	 * </p>
+	 * 
+	 * @param tasks
+	 *                The tasks to run
+	 * 
+	 * @throws RuntimeException
+	 *                 if one of the tasks has thrown it, the first one in
+	 *                 the order of the tasks
+	 */
+	public static void invokeAll(final List<? extends Runnable> tasks) {
+		if (Thread.currentThread() instanceof Worker) {
+			for (final Runnable task : tasks) {
+				task.run();
+			}
+			return;
+		}
+
+		final ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		for (final Runnable task : tasks) {
+			futures.add(RenderPool.executor.submit(task));
+		}
+
+		boolean interrupted = false;
+		Throwable failure = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (final InterruptedException e) {
+				// wait again for the same task
+				interrupted = true;
+				i--;
+			} catch (final ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+	}
+
+	/**
+	 * Not instantiable
+	 */
+	private RenderPool() {
+	}
+}
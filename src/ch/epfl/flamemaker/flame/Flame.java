@@ -3,11 +3,10 @@ package ch.epfl.flamemaker.flame;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import ch.epfl.flamemaker.extra.Preferences;
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
-import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
 import ch.epfl.flamemaker.geometry2d.Transformation;
 import ch.epfl.flamemaker.ifs.IFS;
@@ -138,6 +137,12 @@ public class Flame {
 			return true;
 		}
 
+		@Override
+		public int hashCode() {
+			// the same as the one of the built flame
+			return this.list.hashCode();
+		}
+
 		/**
 		 * Remove the {@link FlameTransformation} at the given index
 		 * 
@@ -246,6 +251,17 @@ public class Flame {
 	 */
 	private final double[]			arrayIndex;
 
+	/**
+	 * The hash code of the transformations, computed once as they never
+	 * change
+	 */
+	private final int			hash;
+
+	/**
+	 * The kernel transforming the points in the chaos game
+	 */
+	private final FlameKernel			kernel;
+
 	/**
 	 * The list of the {@link FlameTransformation} to use in the computation
 	 */
@@ -261,6 +277,9 @@ public class Flame {
 	 */
 	public Flame(final List<FlameTransformation> transformations) {
 		this.transformations = new ArrayList<FlameTransformation>(transformations);
+		this.hash = this.transformations.hashCode();
+
+		this.kernel = new FlameKernel.Interpreted(this.kernels());
 
 		this.arrayIndex = new double[this.transformations.size()];
 		switch (this.arrayIndex.length) {
@@ -291,6 +310,22 @@ public class Flame {
 		}
 	}
 
+	/**
+	 * Construct a {@link Flame} with the same {@link FlameTransformation}
+	 * as the given one, but with the given kernel
+	 * 
+	 * @param flame
+	 *                The {@link Flame} to copy
+	 * @param kernel
+	 *                The kernel to use in the chaos game
+	 */
+	private Flame(final Flame flame, final FlameKernel kernel) {
+		this.transformations = flame.transformations;
+		this.arrayIndex = flame.arrayIndex;
+		this.hash = flame.hash;
+		this.kernel = kernel;
+	}
+
 	/**
 	 * Compute the fractal, with the given definition (width and height) and
 	 * the number of points, and hit the given
@@ -302,58 +337,36 @@ public class Flame {
 	 *                The
 	 *                {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
 	 *                to hit
+	 * 
+	 * @see RenderSession#advance(long)
 	 */
-	public void compute(final int points, final FlameAccumulator.Builder image) {
-
-		final Random rand = new Random();
-
-		final int totalThreads = Preferences.values.threads;
-		final Thread[] threads = new Thread[totalThreads];
-		for (int i = 0; i < threads.length; i++) {
-
-			threads[i] = new Thread(new Runnable() {
-
-				@Override
-				public void run() {
-					Point p = Point.ORIGIN;
-
-					// Randomize the point 20 times
-					double lastColor = 0;
-					for (int j = 0; j < 20; j++) {
-						final int i = rand.nextInt(Flame.this.transformations.size());
-						p = Flame.this.transformations.get(i).transformPoint(p);
-						lastColor = (Flame.this.arrayIndex[i] + lastColor) / 2.0;
-					}
-
-					// Actually hit the accumulator
-					for (int j = 0; j < points / totalThreads; j++) {
-						final int i = rand.nextInt(Flame.this.transformations.size());
-						p = Flame.this.transformations.get(i).transformPoint(p);
-
-						lastColor = (Flame.this.arrayIndex[i] + lastColor) / 2.0;
-
-						image.hit(p, lastColor);
-					}
-				}
-			});
-		}
-
-		// If we do not have list, just return the image.build()
-		if (this.transformations.size() == 0) {
-			return;
-		}
-
-		for (final Thread thread : threads) {
-			thread.start();
-		}
+	public void compute(final long points, final FlameAccumulator.Builder image) {
+		new RenderSession(this, image).advance(points);
+	}
 
-		for (final Thread thread : threads) {
-			try {
-				thread.join();
-			} catch (final InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+	/**
+	 * Compute the fractal, with the given definition (width and height) and
+	 * the number of points, and hit the given
+	 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}, the
+	 * generator of every walker being seeded by the given seed
+	 * <p>
+	 * With the same seed, the same points are hit and the
+	 * {@link FlameAccumulator} is exactly the same, whatever the number of
+	 * threads. To hit the points progressively, a {@link RenderSession}
+	 * keeps the walkers from one call to the next one.
+	 * </p>
+	 * 
+	 * @param points
+	 *                The average number of points to hit
+	 * @param image
+	 *                The
+	 *                {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+	 *                to hit
+	 * @param seed
+	 *                The seed of the generators of the walkers
+	 */
+	public void compute(final long points, final FlameAccumulator.Builder image, final long seed) {
+		new RenderSession(this, image, seed).advance(points);
 	}
 
 	/**
@@ -370,63 +383,159 @@ public class Flame {
 	 * @param density
 	 *                A constant representing the number of wanted iteration
 	 *                (the more, the better the fractal will be but the
-	 *                longer it will take to generate)
+	 *                longer it will take to generate), the number of points
+	 *                being density * width * height, as a long
 	 * 
 	 * @return A {@link FlameAccumulator} with the generate fractal
 	 */
 	public FlameAccumulator compute(final Rectangle frame, final int width, final int height, final int density) {
-
-		final Random rand = new Random();
-		final int m = density * width * height;
 		final FlameAccumulator.Builder image = new FlameAccumulator.Builder(frame, width, height);
+		this.compute((long) density * width * height, image);
+		return image.build();
+	}
 
-		final int totalThreads = Preferences.values.threads;
-		final Thread[] threads = new Thread[totalThreads];
-		for (int i = 0; i < threads.length; i++) {
-			threads[i] = new Thread(new Runnable() {
-
-				@Override
-				public void run() {
-					Point p = Point.ORIGIN;
+	/**
+	 * Return true if the given object is a {@link Flame} with the same
+	 * {@link FlameTransformation}, in the same order, whatever the kernel
+	 * used to compute them
+	 * <p>
+	 * The cached hash codes are compared first, so two different fractals
+	 * are most often told apart without comparing their transformations.
+	 * </p>
+	 * 
+	 * @param obj
+	 *                The object to compare to
+	 * 
+	 * @return True if the object draws the same fractal
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || this.getClass() != obj.getClass()) {
+			return false;
+		}
+		final Flame other = (Flame) obj;
+		return this.hash == other.hash && this.transformations.equals(other.transformations);
+	}
 
-					// Randomize the point 20 times
-					double lastColor = 0;
-					for (int j = 0; j < 20; j++) {
-						final int i = rand.nextInt(Flame.this.transformations.size());
-						p = Flame.this.transformations.get(i).transformPoint(p);
-						lastColor = (Flame.this.arrayIndex[i] + lastColor) / 2.0;
-					}
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
 
-					// Actually hit the accumulator
-					for (int j = 0; j < m / totalThreads; j++) {
-						final int i = rand.nextInt(Flame.this.transformations.size());
-						p = Flame.this.transformations.get(i).transformPoint(p);
+	/**
+	 * Return true if the chaos game uses a kernel generated for this
+	 * {@link Flame}
+	 * 
+	 * @return True if the kernel is specialized
+	 * 
+	 * @see #specialize()
+	 */
+	public boolean isSpecialized() {
+		return this.kernel.isSpecialized();
+	}
 
-						lastColor = (Flame.this.arrayIndex[i] + lastColor) / 2.0;
+	/**
+	 * Return the precision of the numbers used to iterate the chaos game
+	 * 
+	 * @return The precision of the numbers used to iterate the chaos game
+	 * 
+	 * @see #withPrecision(Precision)
+	 */
+	public Precision precision() {
+		return this.kernel.precision();
+	}
 
-						image.hit(p, lastColor);
-					}
-				}
-			});
+	/**
+	 * Return a {@link Flame} computing the same fractal, whose chaos game
+	 * uses a class generated for it, with the coefficients and the weights
+	 * written as constants and the variations without weight dropped
+	 * <p>
+	 * The generation has a cost, which is only worth it for long renders,
+	 * and the generated kernel hits exactly the same points as the
+	 * interpreted one. If the class cannot be generated, a warning is logged
+	 * and the returned {@link Flame} uses the interpreted kernel. Only the
+	 * double precision is specialized, a {@link Flame} in another precision
+	 * is returned as is.
+	 * </p>
+	 * 
+	 * @return A {@link Flame} with a specialized kernel, if possible
+	 */
+	public Flame specialize() {
+		if (this.kernel.isSpecialized() || this.kernel.precision() != Precision.DOUBLE
+				|| this.transformations.isEmpty()) {
+			return this;
 		}
 
-		// If we do not have list, just return the image.build()
-		if (this.transformations.size() == 0) {
-			return image.build();
+		try {
+			return new Flame(this, FlameKernelCompiler.compile(this.kernels()));
+		} catch (final IllegalStateException e) {
+			Logger.getLogger(Flame.class.getName()).log(Level.WARNING,
+					"Unable to specialize the flame, using the interpreted kernel", e);
+			return this;
 		}
+	}
 
-		for (final Thread thread : threads) {
-			thread.start();
+	/**
+	 * Return a {@link Flame} computing the same fractal, whose chaos game
+	 * is iterated in the given precision
+	 * 
+	 * @param precision
+	 *                The precision of the numbers used to iterate the chaos
+	 *                game
+	 * 
+	 * @return A {@link Flame} iterated in the given precision, this one if
+	 *         it already is
+	 */
+	public Flame withPrecision(final Precision precision) {
+		if (this.kernel.precision() == precision) {
+			return this;
 		}
 
-		for (final Thread thread : threads) {
-			try {
-				thread.join();
-			} catch (final InterruptedException e) {
-				e.printStackTrace();
-			}
+		switch (precision) {
+
+		case SINGLE:
+			return new Flame(this, new FlameKernel.Single(this.kernels()));
+
+		case FAST:
+			return new Flame(this, new FlameKernel.Fast(this.kernels()));
+
+		default:
+			return new Flame(this, new FlameKernel.Interpreted(this.kernels()));
 		}
+	}
 
-		return image.build();
+	/**
+	 * Return the index of the color of every {@link FlameTransformation},
+	 * which must not be changed
+	 * 
+	 * @return The index of the color of every {@link FlameTransformation}
+	 */
+	double[] colorIndexes() {
+		return this.arrayIndex;
+	}
+
+	/**
+	 * Return the kernel transforming the points in the chaos game
+	 * 
+	 * @return The kernel transforming the points in the chaos game
+	 */
+	FlameKernel kernel() {
+		return this.kernel;
+	}
+
+	/**
+	 * Return the compiled form of every {@link FlameTransformation}
+	 * 
+	 * @return The compiled form of every {@link FlameTransformation}
+	 */
+	private FlameTransformation.Kernel[] kernels() {
+		final FlameTransformation.Kernel[] kernels = new FlameTransformation.Kernel[this.transformations.size()];
+		for (int i = 0; i < kernels.length; i++) {
+			kernels[i] = this.transformations.get(i).kernel();
+		}
+		return kernels;
 	}
 }
@@ -1,8 +1,14 @@
 package ch.epfl.flamemaker.flame;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+
 import ch.epfl.flamemaker.color.Color;
 import ch.epfl.flamemaker.color.Palette;
-import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.extra.Preferences;
+import ch.epfl.flamemaker.extra.RenderPool;
+import ch.epfl.flamemaker.geometry2d.PixelMapper;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
 
@@ -11,33 +17,295 @@ import ch.epfl.flamemaker.geometry2d.Rectangle;
  */
 public class FlameAccumulator {
 
+	/**
+	 * {@link Sink} shared by every worker which hit directly the arrays of
+	 * a {@link Builder} with atomic operations: each hit is slower than
+	 * with a private {@link Buffer}, but there is no copy of the arrays
+	 */
+	private static class AtomicSink implements Sink {
+
+		/**
+		 * Atomic access to the elements of colorIndexSum
+		 */
+		private static final VarHandle	COLOR	= MethodHandles.arrayElementVarHandle(long[].class);
+
+		/**
+		 * Atomic access to the elements of density
+		 */
+		private static final VarHandle	DENSITY	= MethodHandles.arrayElementVarHandle(long[].class);
+
+		/**
+		 * Atomic access to the elements of hitCount
+		 */
+		private static final VarHandle	HIT	= MethodHandles.arrayElementVarHandle(int[].class);
+
+		/**
+		 * Atomic access to the maxHitCount of the {@link Builder}
+		 */
+		private static final VarHandle	MAX;
+
+		static {
+			try {
+				MAX = MethodHandles.lookup().findVarHandle(Builder.class, "maxHitCount", int.class);
+			} catch (final ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		/**
+		 * The {@link Builder} to hit
+		 */
+		private final Builder		builder;
+
+		/**
+		 * Construct an {@link AtomicSink} hitting the given
+		 * {@link Builder}
+		 * 
+		 * @param builder
+		 *                The {@link Builder} to hit
+		 */
+		public AtomicSink(final Builder builder) {
+			this.builder = builder;
+		}
+
+		@Override
+		public void hit(final double x, final double y, final double colorIndex) {
+			final int index = this.builder.mapper.index(x, y);
+			if (index < 0) {
+				return;
+			}
+
+			// the count is only incremented below the limit, whatever
+			// the number of threads hitting the pixel at once
+			int hits;
+			do {
+				hits = (int) AtomicSink.HIT.getVolatile(this.builder.hitCount, index);
+				if (hits >= FlameAccumulator.MAX_HITS) {
+					return;
+				}
+			} while (!AtomicSink.HIT.compareAndSet(this.builder.hitCount, index, hits, hits + 1));
+			hits++;
+
+			AtomicSink.COLOR.getAndAdd(this.builder.colorIndexSum, index, FlameAccumulator.toFixed(colorIndex));
+
+			// the density class of the pixel changes on powers of two
+			if ((hits & hits - 1) == 0) {
+				final int densityClass = FlameAccumulator.densityClass(hits);
+				AtomicSink.DENSITY.getAndAdd(this.builder.density, densityClass - 1, -1L);
+				AtomicSink.DENSITY.getAndAdd(this.builder.density, densityClass, 1L);
+			}
+
+			int max = (int) AtomicSink.MAX.getVolatile(this.builder);
+			while (hits > max && !AtomicSink.MAX.compareAndSet(this.builder, max, hits)) {
+				max = (int) AtomicSink.MAX.getVolatile(this.builder);
+			}
+		}
+
+		@Override
+		public void hit(final double[] x, final double[] y, final double[] colorIndex, final int count) {
+			for (int i = 0; i < count; i++) {
+				this.hit(x[i], y[i], colorIndex[i]);
+			}
+		}
+	}
+
+	/**
+	 * Private copy of the arrays of a {@link Builder}, used by a single
+	 * worker of the chaos game so its hits do not need to be synchronized
+	 */
+	private static class Buffer implements Sink {
+
+		/**
+		 * The {@link Builder} the buffer will be merged into
+		 */
+		private final Builder		builder;
+
+		/**
+		 * Array containing the sum of the index for every pixel hit by
+		 * the worker since the last merge, in fixed point
+		 */
+		private final long[]		colorIndexSum;
+
+		/**
+		 * True if the buffer was hit since the last merge
+		 */
+		private boolean			dirty;
+
+		/**
+		 * Array containing the hit count of every pixel hit by the
+		 * worker since the last merge
+		 */
+		private final int[]		hitCount;
+
+		/**
+		 * The mapper of the points to the pixels, the one of the
+		 * {@link Builder}
+		 */
+		private final PixelMapper	mapper;
+
+		/**
+		 * Construct an empty {@link Buffer} for the given
+		 * {@link Builder}
+		 * 
+		 * @param builder
+		 *                The {@link Builder} to merge into
+		 */
+		public Buffer(final Builder builder) {
+			this.builder = builder;
+			this.mapper = builder.mapper;
+			this.hitCount = new int[builder.hitCount.length];
+			this.colorIndexSum = new long[builder.hitCount.length];
+			this.dirty = false;
+		}
+
+		@Override
+		public void hit(final double x, final double y, final double colorIndex) {
+			final int index = this.mapper.index(x, y);
+			if (index < 0 || this.hitCount[index] == FlameAccumulator.MAX_HITS) {
+				return;
+			}
+
+			this.colorIndexSum[index] += FlameAccumulator.toFixed(colorIndex);
+			this.hitCount[index]++;
+			this.dirty = true;
+		}
+
+		@Override
+		public void hit(final double[] x, final double[] y, final double[] colorIndex, final int count) {
+			final PixelMapper mapper = this.mapper;
+			final int[] hitCount = this.hitCount;
+			final long[] colorIndexSum = this.colorIndexSum;
+
+			for (int i = 0; i < count; i++) {
+				final int index = mapper.index(x[i], y[i]);
+				if (index >= 0 && hitCount[index] != FlameAccumulator.MAX_HITS) {
+					colorIndexSum[index] += FlameAccumulator.toFixed(colorIndex[i]);
+					hitCount[index]++;
+				}
+			}
+			this.dirty = true;
+		}
+
+		/**
+		 * Add the pixels between from (inclusive) and to (exclusive)
+		 * to the arrays of the {@link Builder} and clear them
+		 * <p>
+		 * A pixel whose sum of hit counts would be more than
+		 * {@link FlameAccumulator#MAX_HITS} gets only the hits it lacks,
+		 * with their share of the sum of color indexes
+		 * </p>
+		 * 
+		 * @param from
+		 *                The index of the first pixel to merge
+		 * @param to
+		 *                The index after the last pixel to merge
+		 * @param density
+		 *                The changes of the number of pixels per density
+		 *                class, updated with the merged pixels
+		 * 
+		 * @return The greatest hit count of the merged pixels, after the
+		 *         merge
+		 */
+		public int mergeInto(final int from, final int to, final long[] density) {
+			final int[] hits = this.hitCount, builderHits = this.builder.hitCount;
+			final long[] colors = this.colorIndexSum, builderColors = this.builder.colorIndexSum;
+			int max = 0;
+			for (int i = from; i < to; i++) {
+				if (hits[i] != 0) {
+					final int before = builderHits[i];
+					if (hits[i] <= FlameAccumulator.MAX_HITS - before) {
+						builderHits[i] = before + hits[i];
+						builderColors[i] += colors[i];
+					} else {
+						builderHits[i] = FlameAccumulator.MAX_HITS;
+						builderColors[i] += (long) (colors[i]
+								* ((FlameAccumulator.MAX_HITS - before) / (double) hits[i]));
+					}
+					final int after = builderHits[i];
+					hits[i] = 0;
+					colors[i] = 0;
+
+					if (max < after) {
+						max = after;
+					}
+					final int a = FlameAccumulator.densityClass(before);
+					final int b = FlameAccumulator.densityClass(after);
+					if (a != b) {
+						density[a]--;
+						density[b]++;
+					}
+				}
+			}
+			return max;
+		}
+	}
+
 	/**
 	 * Builder for FlameAccumulator
 	 */
 	public static class Builder {
 
+		/**
+		 * The {@link AtomicSink} shared by the workers when their
+		 * private {@link Buffer} would not fit in memory
+		 */
+		private AtomicSink		atomicSink;
+
+		/**
+		 * False if the workers have to hit the {@link AtomicSink} even
+		 * when their private {@link Buffer} would fit in memory
+		 */
+		private boolean			buffered;
+
+		/**
+		 * The private {@link Buffer} of every worker, merged into the
+		 * arrays of the builder when we build
+		 */
+		private Buffer[]		buffers;
+
 		/**
 		 * Array containing the sum of the index for every pixel from
-		 * the fractal
+		 * the fractal, in fixed point, indexed by the mapper
 		 */
-		private final double[][]	colorIndexSum;
+		private long[]			colorIndexSum;
 
 		/**
-		 * Rectangle where the hit point is counted
+		 * The number of pixels in every density class, kept up to date
+		 * with the hits
 		 */
-		private final Rectangle		frame;
+		private final long[]		density;
 
 		/**
 		 * Array containing the hit count of every pixel from the
-		 * fractal
+		 * fractal, indexed by the mapper
+		 */
+		private int[]			hitCount;
+
+		/**
+		 * The last {@link FlameAccumulator} built, returned again by
+		 * {@link #build()} until the arrays change, null if they have
+		 * changed
+		 */
+		private FlameAccumulator	last;
+
+		/**
+		 * The mapper of the points of the frame, where the hit points
+		 * are counted, to the pixels
+		 */
+		private final PixelMapper	mapper;
+
+		/**
+		 * The greatest hit count of a pixel, kept up to date with the
+		 * hits
 		 */
-		private final int[][]		hitCount;
+		private int			maxHitCount;
 
 		/**
-		 * A transformation used in hit to map the given point to out
-		 * system
+		 * True if the arrays are shared with the last
+		 * {@link FlameAccumulator} built, thus must be copied before
+		 * being written
 		 */
-		private AffineTransformation	transformation;
+		private boolean			shared;
 
 		/**
 		 * Construct a builder of FlameAccumulator
@@ -50,30 +318,48 @@ public class FlameAccumulator {
 		 *                Height of the accumulator
 		 * @throws IllegalArgumentException
 		 *                 if the height or width are smaller or equal
-		 *                 to one
+		 *                 to one, or if the accumulator has more than
+		 *                 {@link Integer#MAX_VALUE} pixels, as the pixels
+		 *                 are indexed by an int
 		 */
 		public Builder(final Rectangle frame, final int width, final int height) {
 			if (width <= 0 || height <= 0) {
 				throw new IllegalArgumentException();
 			}
+			if ((long) width * height > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many pixels: " + width + "x" + height);
+			}
 
-			this.frame = new Rectangle(frame.center(), frame.width(), frame.height());
-			this.transformation = AffineTransformation.newScaling(width / frame.width(),
-					height / frame.height());
-			this.transformation = this.transformation.composeWith(AffineTransformation.newTranslation(
-					-frame.left(), -frame.bottom()));
-
-			this.hitCount = new int[width][height];
-			this.colorIndexSum = new double[width][height];
+			this.mapper = new PixelMapper(frame, width, height);
+			this.buffered = true;
+			this.hitCount = new int[width * height];
+			this.colorIndexSum = new long[width * height];
+			this.density = new long[FlameAccumulator.DENSITY_CLASSES];
+			this.density[0] = width * height;
 		}
 
 		/**
 		 * Return an Accumulator with the actual state of the builder
+		 * <p>
+		 * The accumulator is a read-only snapshot sharing the arrays of
+		 * the builder, which copies them only when it is hit after (the
+		 * copy being done with the merge of the buffers of the
+		 * workers). If the builder was not hit since the last call, the
+		 * same accumulator is returned, thus building it again costs
+		 * nothing. The maximum hit count and the density histogram are
+		 * maintained with the hits, so they are not computed either.
+		 * </p>
 		 * 
 		 * @return An Accumulator with the actual state of the builder
 		 */
-		public FlameAccumulator build() {
-			return new FlameAccumulator(this.hitCount, this.colorIndexSum);
+		public synchronized FlameAccumulator build() {
+			this.merge();
+			if (this.last == null) {
+				this.last = new FlameAccumulator(this.hitCount, this.colorIndexSum, this.mapper.width(),
+						this.maxHitCount, this.density.clone());
+				this.shared = true;
+			}
+			return this.last;
 		}
 
 		/**
@@ -85,24 +371,326 @@ public class FlameAccumulator {
 		 * @param colorIndex
 		 *                The index of the color for this point
 		 */
-		public synchronized void hit(Point p, final double colorIndex) {
-			if (!this.frame.contains(p)) {
+		public void hit(final Point p, final double colorIndex) {
+			this.hit(p.x(), p.y(), colorIndex);
+		}
+
+		/**
+		 * Update the accumulator if the point (x, y) is in the wanted
+		 * rectangle, without creating any object
+		 * 
+		 * @param x
+		 *                The x value of the point which we hit
+		 * @param y
+		 *                The y value of the point which we hit
+		 * @param colorIndex
+		 *                The index of the color for this point
+		 */
+		public synchronized void hit(final double x, final double y, final double colorIndex) {
+			final int index = this.mapper.index(x, y);
+			if (index < 0 || this.hitCount[index] == FlameAccumulator.MAX_HITS) {
+				return;
+			}
+
+			this.unshare();
+			this.colorIndexSum[index] += FlameAccumulator.toFixed(colorIndex);
+			final int hits = ++this.hitCount[index];
+
+			// the density class of the pixel changes on powers of two
+			if ((hits & hits - 1) == 0) {
+				final int densityClass = FlameAccumulator.densityClass(hits);
+				this.density[densityClass - 1]--;
+				this.density[densityClass]++;
+			}
+			if (this.maxHitCount < hits) {
+				this.maxHitCount = hits;
+			}
+		}
+
+		/**
+		 * Update the accumulator with the given number of points, the
+		 * i-th one being (x[i], y[i]) with the index of color
+		 * colorIndex[i], the ones not in the wanted rectangle being
+		 * ignored
+		 * 
+		 * @param x
+		 *                The x values of the points which we hit
+		 * @param y
+		 *                The y values of the points which we hit
+		 * @param colorIndex
+		 *                The indexes of the color of the points
+		 * @param count
+		 *                The number of points to hit, from the start of
+		 *                the arrays
+		 * 
+		 * @throws IndexOutOfBoundsException
+		 *                 if an array has less than count values
+		 */
+		public synchronized void hit(final double[] x, final double[] y, final double[] colorIndex,
+				final int count) {
+			for (int i = 0; i < count; i++) {
+				this.hit(x[i], y[i], colorIndex[i]);
+			}
+		}
+
+		/**
+		 * Choose whether the workers of the chaos game hit a private
+		 * buffer each when they fit in memory (the default), or always
+		 * hit the arrays of the builder with atomic operations, which
+		 * gives exactly the same accumulator with less memory
+		 * 
+		 * @param buffered
+		 *                True to give a private buffer to every worker
+		 *                when they fit in memory
+		 */
+		public synchronized void setBuffered(final boolean buffered) {
+			this.buffered = buffered;
+		}
+
+		/**
+		 * Set the hit count of the given pixel, as if every hit had the
+		 * given index of color, e.g. to test the saturation of a pixel
+		 * without hitting it billions of times
+		 * 
+		 * @param x
+		 *                The x value of the pixel
+		 * @param y
+		 *                The y value of the pixel
+		 * @param hits
+		 *                The hit count, from 0 to
+		 *                {@link FlameAccumulator#MAX_HITS}
+		 * @param colorIndex
+		 *                The index of color of every hit
+		 */
+		synchronized void preset(final int x, final int y, final int hits, final double colorIndex) {
+			this.merge();
+			this.unshare();
+
+			final int index = y * this.mapper.width() + x;
+			this.density[FlameAccumulator.densityClass(this.hitCount[index])]--;
+			this.density[FlameAccumulator.densityClass(hits)]++;
+			this.hitCount[index] = hits;
+			this.colorIndexSum[index] = hits * FlameAccumulator.toFixed(colorIndex);
+			this.maxHitCount = Math.max(this.maxHitCount, hits);
+		}
+
+		/**
+		 * Return the {@link Sink} the given worker of the chaos game
+		 * has to hit, so that the workers do not fight for the lock of
+		 * {@link #hit(double, double, double)}
+		 * <p>
+		 * It is a private {@link Buffer} if there is enough memory to
+		 * have one per worker, else an {@link AtomicSink} shared by
+		 * every worker (e.g. for huge images with a lot of threads, or
+		 * if {@link #setBuffered(boolean)} asked for it)
+		 * </p>
+		 * <p>
+		 * A {@link Sink} must not be used while the builder is being
+		 * built, and a private {@link Buffer} only by one thread at a
+		 * time
+		 * </p>
+		 * 
+		 * @param worker
+		 *                The index of the worker
+		 * @param workers
+		 *                The total number of workers
+		 * 
+		 * @return The {@link Sink} of the given worker
+		 */
+		synchronized Sink sink(final int worker, final int workers) {
+			if (!this.buffered || !this.buffersFit(workers)) {
+				if (this.atomicSink == null) {
+					this.atomicSink = new AtomicSink(this);
+				}
+				// it writes the arrays directly, from now on
+				this.unshare();
+				return this.atomicSink;
+			}
+
+			if (this.buffers == null || this.buffers.length != workers) {
+				this.merge();
+				this.buffers = new Buffer[workers];
+			}
+
+			if (this.buffers[worker] == null) {
+				this.buffers[worker] = new Buffer(this);
+			}
+
+			return this.buffers[worker];
+		}
+
+		/**
+		 * Return true if a private {@link Buffer} for each of the given
+		 * number of workers fits in a quarter of the memory the JVM is
+		 * allowed to use
+		 * 
+		 * @param workers
+		 *                The number of workers
+		 * 
+		 * @return True if a {@link Buffer} per worker fits in memory
+		 */
+		private boolean buffersFit(final int workers) {
+			final long pixels = this.hitCount.length;
+			final long bytes = workers * pixels * (Integer.SIZE + Double.SIZE) / Byte.SIZE;
+			return bytes <= Runtime.getRuntime().maxMemory() / 4;
+		}
+
+		/**
+		 * Merge the {@link Buffer} of every worker into the arrays, in
+		 * parallel: each thread take care of a stripe of rows, and
+		 * counts the changes of the density histogram of its stripe
+		 */
+		private void merge() {
+			if (this.buffers == null) {
+				return;
+			}
+
+			final ArrayList<Buffer> dirty = new ArrayList<Buffer>();
+			for (final Buffer buffer : this.buffers) {
+				if (buffer != null && buffer.dirty) {
+					buffer.dirty = false;
+					dirty.add(buffer);
+				}
+			}
+
+			if (dirty.isEmpty()) {
 				return;
 			}
 
-			// we transform the point in our system
-			p = this.transformation.transformPoint(p);
-			final int x = (int) (p.x()), y = (int) (p.y());
-			this.colorIndexSum[x][y] += colorIndex;
-			this.hitCount[x][y]++;
+			// the arrays shared with the last accumulator are copied
+			// by the tasks, each one its stripe before merging it
+			final int[] hits = this.hitCount;
+			final long[] colors = this.colorIndexSum;
+			final boolean copy = this.shared;
+			if (copy) {
+				this.hitCount = new int[hits.length];
+				this.colorIndexSum = new long[colors.length];
+				this.shared = false;
+			}
+			this.last = null;
+
+			final int[] newHits = this.hitCount;
+			final long[] newColors = this.colorIndexSum;
+			final int width = this.mapper.width(), height = this.mapper.height();
+			final int stripes = Math.min(this.buffers.length, height);
+			final long[][] densities = new long[stripes][FlameAccumulator.DENSITY_CLASSES];
+			final int[] maxima = new int[stripes];
+			final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+			for (int i = 0; i < stripes; i++) {
+				final int stripe = i;
+				final int from = width * (height * i / stripes), to = width * (height * (i + 1) / stripes);
+				tasks.add(new Runnable() {
+
+					@Override
+					public void run() {
+						if (copy) {
+							System.arraycopy(hits, from, newHits, from, to - from);
+							System.arraycopy(colors, from, newColors, from, to - from);
+						}
+						for (final Buffer buffer : dirty) {
+							maxima[stripe] = Math.max(maxima[stripe],
+									buffer.mergeInto(from, to, densities[stripe]));
+						}
+					}
+				});
+			}
+
+			RenderPool.invokeAll(tasks);
+
+			for (int i = 0; i < stripes; i++) {
+				this.maxHitCount = Math.max(this.maxHitCount, maxima[i]);
+				for (int c = 0; c < FlameAccumulator.DENSITY_CLASSES; c++) {
+					this.density[c] += densities[i][c];
+				}
+			}
 		}
+
+		/**
+		 * Copy the arrays if they are shared with the last
+		 * {@link FlameAccumulator} built, before writing them, and
+		 * forget it
+		 */
+		private void unshare() {
+			if (this.shared) {
+				this.hitCount = this.hitCount.clone();
+				this.colorIndexSum = this.colorIndexSum.clone();
+				this.shared = false;
+			}
+			this.last = null;
+		}
+	}
+
+	/**
+	 * Destination of the hits of a worker of the chaos game
+	 */
+	static interface Sink {
+		/**
+		 * Update the sink if the point (x, y) is in the wanted
+		 * rectangle
+		 * 
+		 * @param x
+		 *                The x value of the point which we hit
+		 * @param y
+		 *                The y value of the point which we hit
+		 * @param colorIndex
+		 *                The index of the color for this point
+		 */
+		void hit(double x, double y, double colorIndex);
+
+		/**
+		 * Update the sink with the given number of points, the i-th
+		 * one being (x[i], y[i]) with the index of color colorIndex[i],
+		 * without a call per point
+		 * 
+		 * @param x
+		 *                The x values of the points which we hit
+		 * @param y
+		 *                The y values of the points which we hit
+		 * @param colorIndex
+		 *                The indexes of the color of the points
+		 * @param count
+		 *                The number of points to hit, from the start of
+		 *                the arrays
+		 */
+		void hit(double[] x, double[] y, double[] colorIndex, int count);
 	}
 
+	/**
+	 * The number of density classes: the class of a pixel hit n times is
+	 * the number of bits of n, 0 if it was never hit, 1 if it was hit once,
+	 * 2 if two or three times, 3 from four to seven times...
+	 */
+	private static final int	DENSITY_CLASSES	= Integer.SIZE + 1;
+
+	/**
+	 * The value of 1 in the fixed point sums of the builder: the indexes of
+	 * color are summed as integers so that the sums do not depend on the
+	 * order of the hits (e.g. the number of threads), and 2^31 hits of 1
+	 * still fit in a long
+	 */
+	private static final double	FIXED_ONE	= 1L << 31;
+
+	/**
+	 * The hit count at which a pixel saturates: its next hits are ignored,
+	 * so that the count stays an int and the sum of its color indexes fits
+	 * in a long. The color of such a pixel is the average of the hits
+	 * already counted, and its intensity stays the maximum, thus a very
+	 * long render does not wrap its hottest pixels to black.
+	 * <p>
+	 * Every {@link Sink} checks it before counting a hit, the
+	 * {@link AtomicSink} with a compare-and-set, thus no count ever goes
+	 * above it. It is one below {@link Integer#MAX_VALUE} so that the count
+	 * plus one, in the logarithm of the intensity, is still an int.
+	 * </p>
+	 */
+	static final int		MAX_HITS	= Integer.MAX_VALUE - 1;
+
 	/**
 	 * Array containing the sum of the index for every pixel from the
-	 * fractal
+	 * fractal, in fixed point, the pixel (x, y) being at the index y *
+	 * width + x
 	 */
-	private final double[][]	colorIndexSum;
+	private final long[]		colorIndexSum;
 
 	/**
 	 * Used to increase speed of intensity() method
@@ -110,50 +698,86 @@ public class FlameAccumulator {
 	private final double		denominator;
 
 	/**
-	 * Array containing the hit count of every pixel from the fractal
+	 * The number of pixels in every density class
+	 */
+	private final long[]		density;
+
+	/**
+	 * Array containing the hit count of every pixel from the fractal, the
+	 * pixel (x, y) being at the index y * width + x
+	 */
+	private final int[]		hitCount;
+
+	/**
+	 * The greatest hit count of a pixel
+	 */
+	private final int		maxHitCount;
+
+	/**
+	 * The width of the accumulator
 	 */
-	private final int[][]		hitCount;
+	private final int		width;
+
+	/**
+	 * Return the density class of a pixel hit the given number of times
+	 * 
+	 * @param hits
+	 *                The hit count of the pixel
+	 * 
+	 * @return The number of bits of the hit count
+	 */
+	private static int densityClass(final int hits) {
+		return Integer.SIZE - Integer.numberOfLeadingZeros(hits);
+	}
+
+	/**
+	 * Return the given index of color in fixed point, rounded to the
+	 * nearest
+	 * 
+	 * @param colorIndex
+	 *                The index of color, between 0 and 1
+	 * 
+	 * @return The index of color in fixed point
+	 */
+	private static long toFixed(final double colorIndex) {
+		return (long) (colorIndex * FlameAccumulator.FIXED_ONE + 0.5);
+	}
 
 	/**
 	 * Construct a FlameAccumulator with the given array of hit count and
-	 * array of sum of color
+	 * array of sum of color, the pixel (x, y) being at the index y * width
+	 * + x
+	 * <p>
+	 * The arrays are not copied, they must not be changed afterwards.
+	 * </p>
 	 * 
 	 * @param hitCount
 	 *                Array of hit count per pixel
 	 * @param colorIndexSum
-	 *                Array of the sum of index of color per pixel
+	 *                Array of the sum of index of color per pixel, in fixed
+	 *                point
+	 * @param width
+	 *                The width of the accumulator
+	 * @param maxHitCount
+	 *                The greatest value of the array of hit count
+	 * @param density
+	 *                The number of pixels in every density class
 	 * 
 	 * @throws IllegalArgumentException
 	 *                 if the given arrays have not the same size
 	 */
-	private FlameAccumulator(final int[][] hitCount, final double[][] colorIndexSum) {
-		this.hitCount = new int[hitCount.length][hitCount[0].length];
-		this.colorIndexSum = new double[colorIndexSum.length][colorIndexSum[0].length];
-
-		if (hitCount.length != colorIndexSum.length || hitCount[0].length != colorIndexSum[0].length) {
+	private FlameAccumulator(final int[] hitCount, final long[] colorIndexSum, final int width,
+			final int maxHitCount, final long[] density) {
+		if (hitCount.length != colorIndexSum.length) {
 			throw new IllegalArgumentException();
 		}
 
-		// deep copy of the hitCount array
-		for (int x = 0; x < this.hitCount.length; x++) {
-			this.hitCount[x] = hitCount[x].clone();
-		}
-
-		// deep copy of the colorIndexSum array
-		for (int x = 0; x < this.colorIndexSum.length; x++) {
-			this.colorIndexSum[x] = colorIndexSum[x].clone();
-		}
-
-		// get max value and calculate denominator
-		int max = 0;
-		for (final int[] x : hitCount) {
-			for (final int value : x) {
-				if (max < value) {
-					max = value;
-				}
-			}
-		}
-		this.denominator = Math.log(max + 1);
+		this.width = width;
+		this.hitCount = hitCount;
+		this.colorIndexSum = colorIndexSum;
+		this.maxHitCount = maxHitCount;
+		this.density = density;
+		this.denominator = Math.log(maxHitCount + 1);
 	}
 
 	/**
@@ -176,12 +800,19 @@ public class FlameAccumulator {
 	 *                 if x or y are not in the accumulator
 	 */
 	public Color color(final Palette palette, final Color background, final int x, final int y) {
-		if (x < 0 || y < 0 || x > this.width() || y > this.height()) {
-			throw new IndexOutOfBoundsException();
-		}
+		return this.color(palette, background, this.index(x, y));
+	}
 
-		return background.mixWith(palette.colorForIndex(this.colorIndexSum[x][y] / this.hitCount[x][y]),
-				this.intensity(x, y));
+	/**
+	 * Return the density histogram of the accumulator: the number of pixels
+	 * in every density class, the class of a pixel hit n times being the
+	 * number of bits of n (0 if it was never hit, 1 if it was hit once, 2
+	 * if two or three times, 3 from four to seven times...)
+	 * 
+	 * @return The number of pixels in every density class
+	 */
+	public long[] density() {
+		return this.density.clone();
 	}
 
 	/**
@@ -190,7 +821,140 @@ public class FlameAccumulator {
 	 * @return The height of the accumulator
 	 */
 	public int height() {
-		return this.hitCount[0].length;
+		return this.hitCount.length / this.width;
+	}
+
+	/**
+	 * Return an upper bound of the hit count of the given fraction of the
+	 * pixels hit, from the density histogram: the greatest hit count of
+	 * the density class of the quantile, thus at most twice the exact one
+	 * (e.g. to expose the image by its 99th percentile rather than its
+	 * hottest pixel)
+	 * 
+	 * @param quantile
+	 *                The fraction of the pixels hit, between 0 and 1
+	 * 
+	 * @return An upper bound of the hit count of the quantile, 0 if no
+	 *         pixel was hit
+	 * 
+	 * @throws IllegalArgumentException
+	 *                 if quantile is not between 0 and 1
+	 */
+	public int hitCountQuantile(final double quantile) {
+		if (!(quantile >= 0 && quantile <= 1)) {
+			throw new IllegalArgumentException();
+		}
+
+		long pixels = 0;
+		for (int c = 1; c < FlameAccumulator.DENSITY_CLASSES; c++) {
+			pixels += this.density[c];
+		}
+
+		final long wanted = Math.max(1, (long) Math.ceil(quantile * pixels));
+		long seen = 0;
+		for (int c = 1; c < FlameAccumulator.DENSITY_CLASSES; c++) {
+			seen += this.density[c];
+			if (seen >= wanted) {
+				return (int) Math.min((1L << c) - 1, this.maxHitCount);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the greatest hit count of a pixel, the one whose intensity is
+	 * 1
+	 * 
+	 * @return The greatest hit count of a pixel
+	 */
+	public int maxHitCount() {
+		return this.maxHitCount;
+	}
+
+	/**
+	 * Write the colors of the whole accumulator, packed as by
+	 * {@link Color#asPackedRGB()}, into the given array, as the pixels of
+	 * an image: row after row from the top one, each one from left to
+	 * right
+	 * <p>
+	 * The rows are colored in parallel, in stripes, on the threads of the
+	 * {@link RenderPool}. Only the coloring is done, thus the same
+	 * accumulator can be colored again with another {@link Palette} or
+	 * background without computing the fractal again.
+	 * </p>
+	 * 
+	 * @param palette
+	 *                The {@link Palette} where to retrieve the
+	 *                {@link Color} to mix with
+	 * @param background
+	 *                The {@link Color} of the background
+	 * @param pixels
+	 *                The array to write to, of at least {@link #width()} *
+	 *                {@link #height()} values
+	 * 
+	 * @return The given array
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if the array is too small
+	 */
+	public int[] packedImage(final Palette palette, final Color background, final int[] pixels) {
+		final int width = this.width, height = this.height();
+		if (pixels.length < this.hitCount.length) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		final int stripes = Math.max(1, Math.min(Preferences.values.threads, height));
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+		for (int i = 0; i < stripes; i++) {
+			final int from = height * i / stripes, to = height * (i + 1) / stripes;
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int y = from; y < to; y++) {
+						// the bottom row of the accumulator is the
+						// last one of the image
+						FlameAccumulator.this.packRow(palette, background, y, pixels,
+								(height - 1 - y) * width);
+					}
+				}
+			});
+		}
+
+		RenderPool.invokeAll(tasks);
+		return pixels;
+	}
+
+	/**
+	 * Write the colors of the wanted row, packed as by
+	 * {@link Color#asPackedRGB()}, into the given array, from left to
+	 * right: the pixels of a row are next to each other in memory, thus
+	 * the image writers should go through the accumulator row after row
+	 * 
+	 * @param palette
+	 *                The {@link Palette} where to retrieve the
+	 *                {@link Color} to mix with
+	 * @param background
+	 *                The {@link Color} of the background
+	 * @param y
+	 *                The y value of the wanted row, 0 being the bottom
+	 * @param row
+	 *                The array to write to, of at least {@link #width()}
+	 *                values
+	 * 
+	 * @return The given array
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if y is not in the accumulator or the array is too
+	 *                 small
+	 */
+	public int[] packedRow(final Palette palette, final Color background, final int y, final int[] row) {
+		if (row.length < this.width) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		this.packRow(palette, background, y, row, 0);
+		return row;
 	}
 
 	/**
@@ -199,7 +963,42 @@ public class FlameAccumulator {
 	 * @return The width of the accumulator
 	 */
 	public int width() {
-		return this.hitCount.length;
+		return this.width;
+	}
+
+	/**
+	 * Return the sum of the indexes of color of the hits of the given
+	 * pixel, in fixed point
+	 * 
+	 * @param x
+	 *                The x value of the wanted pixel
+	 * @param y
+	 *                The y value of the given pixel
+	 * 
+	 * @return The sum of the indexes of color, times 2^31
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if x or y are not in the accumulator
+	 */
+	long colorIndexSum(final int x, final int y) {
+		return this.colorIndexSum[this.index(x, y)];
+	}
+
+	/**
+	 * Return the hit count of the given pixel
+	 * 
+	 * @param x
+	 *                The x value of the wanted pixel
+	 * @param y
+	 *                The y value of the given pixel
+	 * 
+	 * @return The number of points which hit the pixel
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if x or y are not in the accumulator
+	 */
+	int hitCount(final int x, final int y) {
+		return this.hitCount[this.index(x, y)];
 	}
 
 	/**
@@ -216,10 +1015,92 @@ public class FlameAccumulator {
 	 *                 if x or y are not in the accumulator
 	 */
 	double intensity(final int x, final int y) {
-		if (x < 0 || y < 0 || x > this.width() || y > this.height()) {
+		return this.intensity(this.index(x, y));
+	}
+
+	/**
+	 * Return the color of the pixel at the given index
+	 * 
+	 * @param palette
+	 *                The {@link Palette} where to retrieve the
+	 *                {@link Color} to mix with
+	 * @param background
+	 *                The {@link Color} of the background
+	 * @param index
+	 *                The index of the pixel, y * width + x
+	 * 
+	 * @return The color of the pixel
+	 */
+	private Color color(final Palette palette, final Color background, final int index) {
+		// the index of color of a pixel never hit is 0 / 0
+		if (this.hitCount[index] == 0) {
+			return background;
+		}
+
+		final double colorIndex = this.colorIndexSum[index] / FlameAccumulator.FIXED_ONE;
+		return background.mixWith(palette.colorForIndex(colorIndex / this.hitCount[index]),
+				this.intensity(index));
+	}
+
+
+	/**
+	 * Return the index of the pixel (x, y) in the arrays
+	 * 
+	 * @param x
+	 *                The x value of the pixel
+	 * @param y
+	 *                The y value of the pixel
+	 * 
+	 * @return The index of the pixel, y * width + x
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if x or y are not in the accumulator
+	 */
+	private int index(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height()) {
 			throw new IndexOutOfBoundsException();
 		}
 
-		return (Math.log(this.hitCount[x][y] + 1) / this.denominator);
+		return y * this.width + x;
+	}
+
+	/**
+	 * Return the intensity of the pixel at the given index
+	 * 
+	 * @param index
+	 *                The index of the pixel, y * width + x
+	 * 
+	 * @return The intensity of the pixel
+	 */
+	private double intensity(final int index) {
+		return Math.log(this.hitCount[index] + 1) / this.denominator;
+	}
+
+	/**
+	 * Write the colors of the wanted row, packed as by
+	 * {@link Color#asPackedRGB()}, into the given array from the given
+	 * offset
+	 * 
+	 * @param palette
+	 *                The {@link Palette} where to retrieve the
+	 *                {@link Color} to mix with
+	 * @param background
+	 *                The {@link Color} of the background
+	 * @param y
+	 *                The y value of the wanted row, 0 being the bottom
+	 * @param pixels
+	 *                The array to write to
+	 * @param offset
+	 *                The index in the array of the leftmost pixel
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if y is not in the accumulator
+	 */
+	private void packRow(final Palette palette, final Color background, final int y, final int[] pixels,
+			final int offset) {
+		final int first = this.index(0, y);
+		for (int x = 0; x < this.width; x++) {
+			pixels[offset + x] = this.color(palette, background, first + x).asPackedRGB();
+		}
 	}
 }
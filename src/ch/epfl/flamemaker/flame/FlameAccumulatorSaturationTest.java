@@ -0,0 +1,61 @@
+package ch.epfl.flamemaker.flame;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * Test the saturation of the hit counts, next to the {@link FlameAccumulator}
+ * to preset a pixel near the limit instead of hitting it billions of times
+ */
+public class FlameAccumulatorSaturationTest {
+
+	private static void assertSaturated(final FlameAccumulator.Builder builder) {
+		// 12 hits of index 1 on a pixel lacking 3 of them
+		builder.preset(0, 0, FlameAccumulator.MAX_HITS - 3, 0);
+		final FlameAccumulator.Sink sink = builder.sink(0, 1);
+		for (int i = 0; i < 12; i++) {
+			sink.hit(0, 0, 1);
+		}
+		final FlameAccumulator accu = builder.build();
+
+		Assert.assertEquals(FlameAccumulator.MAX_HITS, accu.hitCount(0, 0));
+		Assert.assertEquals(FlameAccumulator.MAX_HITS, accu.maxHitCount());
+		// only the 3 hits counted add their index of color
+		Assert.assertEquals(3L << 31, accu.colorIndexSum(0, 0));
+		Assert.assertEquals(0, accu.density()[0]);
+		Assert.assertEquals(1, accu.density()[Integer.SIZE - 1]);
+		Assert.assertEquals(1, accu.intensity(0, 0), 0);
+	}
+
+	@Test
+	public void testAtomicSink() {
+		final FlameAccumulator.Builder builder = new FlameAccumulator.Builder(new Rectangle(Point.ORIGIN, 1, 1),
+				1, 1);
+		builder.setBuffered(false);
+		FlameAccumulatorSaturationTest.assertSaturated(builder);
+	}
+
+	@Test
+	public void testBuffer() {
+		final FlameAccumulator.Builder builder = new FlameAccumulator.Builder(new Rectangle(Point.ORIGIN, 1, 1),
+				1, 1);
+		FlameAccumulatorSaturationTest.assertSaturated(builder);
+	}
+
+	@Test
+	public void testHit() {
+		final FlameAccumulator.Builder builder = new FlameAccumulator.Builder(new Rectangle(Point.ORIGIN, 1, 1),
+				1, 1);
+		builder.preset(0, 0, FlameAccumulator.MAX_HITS - 1, 0.5);
+		builder.hit(0, 0, 1);
+		builder.hit(0, 0, 1);
+
+		final FlameAccumulator accu = builder.build();
+		Assert.assertEquals(FlameAccumulator.MAX_HITS, accu.hitCount(0, 0));
+		Assert.assertEquals(FlameAccumulator.MAX_HITS, accu.maxHitCount());
+		Assert.assertEquals((FlameAccumulator.MAX_HITS - 1) * (1L << 30) + (1L << 31), accu.colorIndexSum(0, 0));
+	}
+}
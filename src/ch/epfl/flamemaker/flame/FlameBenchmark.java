@@ -0,0 +1,202 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.Arrays;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.extra.FastMath;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * Main class, measure the number of points computed per second by the chaos
+ * game on the Shark Fin and Turbulence fractals, for every way of walking the
+ * walkers and every {@link Precision}
+ * <p>
+ * Every measure is done on one thread, after a few runs to let the JIT compile
+ * the code, and the best of several runs is kept. The images computed by the
+ * different ways are compared, as they must be exactly the same. The images
+ * computed in another precision than {@link Precision#DOUBLE} are not, thus
+ * their distance to the double one is printed, next to the distance between
+ * two double images of different seeds, which is the noise of the sampling.
+ * The sine and cosine of {@link FastMath} are also measured alone against the
+ * ones of {@link Math}.
+ * </p>
+ */
+public class FlameBenchmark {
+
+	/**
+	 * The palette used to compare the colors of the images
+	 */
+	private static final Palette	PALETTE	= new InterpolatedPalette(Arrays.asList(Color.RED, Color.GREEN,
+							Color.BLUE));
+
+	/**
+	 * The number of points of every run
+	 */
+	private static final int	POINTS	= 10000000;
+
+	/**
+	 * The number of measured runs, after as many runs to warm up
+	 */
+	private static final int	RUNS	= 5;
+
+	/**
+	 * Run the benchmark
+	 * 
+	 * @param args
+	 *                Not used
+	 */
+	public static void main(final String[] args) {
+		FlameBenchmark.compare("Shark Fin", FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame());
+		FlameBenchmark.compare("Turbulence", FlamePPMMaker.turbulence(), FlamePPMMaker.turbulenceFrame());
+		FlameBenchmark.measureTrigonometry("Math", false);
+		FlameBenchmark.measureTrigonometry("FastMath", true);
+	}
+
+	/**
+	 * Measure and print the speed of every way of walking the walkers on
+	 * the given fractal
+	 * 
+	 * @param name
+	 *                The name of the fractal
+	 * @param flame
+	 *                The fractal
+	 * @param frame
+	 *                The scope of the fractal
+	 */
+	private static void compare(final String name, final Flame flame, final Rectangle frame) {
+		final FlameAccumulator scalar = FlameBenchmark.measure(name + ", scalar", flame, frame, 42, false);
+		final FlameAccumulator batched = FlameBenchmark.measure(name + ", batched", flame, frame, 42, true);
+
+		for (int x = 0; x < scalar.width(); x++) {
+			for (int y = 0; y < scalar.height(); y++) {
+				if (scalar.intensity(x, y) != batched.intensity(x, y)) {
+					System.out.println(name + ": the images differ at (" + x + ", " + y + ")");
+					return;
+				}
+			}
+		}
+
+		final FlameAccumulator noise = FlameBenchmark.measure(name + ", other seed", flame, frame, 43, false);
+		FlameBenchmark.printDistance(name + ", other seed", scalar, noise);
+
+		for (final Precision precision : Precision.values()) {
+			if (precision != Precision.DOUBLE) {
+				final String label = name + ", " + precision.name().toLowerCase();
+				final FlameAccumulator accu = FlameBenchmark.measure(label, flame.withPrecision(precision),
+						frame, 42, false);
+				FlameBenchmark.printDistance(label, scalar, accu);
+			}
+		}
+	}
+
+	/**
+	 * Measure and print the speed of the given way of walking the walkers
+	 * on the given fractal
+	 * 
+	 * @param name
+	 *                The name of the measure
+	 * @param flame
+	 *                The fractal
+	 * @param frame
+	 *                The scope of the fractal
+	 * @param seed
+	 *                The seed of the walkers
+	 * @param batched
+	 *                True to walk the walkers in lockstep
+	 * 
+	 * @return The {@link FlameAccumulator} of the last run
+	 */
+	private static FlameAccumulator measure(final String name, final Flame flame, final Rectangle frame,
+			final long seed, final boolean batched) {
+		final long[] times = new long[FlameBenchmark.RUNS];
+		FlameAccumulator accu = null;
+
+		for (int run = -FlameBenchmark.RUNS; run < FlameBenchmark.RUNS; run++) {
+			final FlameAccumulator.Builder image = new FlameAccumulator.Builder(frame, 500, 400);
+			final RenderSession session = new RenderSession(flame, image, seed, 1);
+			session.setBatched(batched);
+
+			final long start = System.nanoTime();
+			session.advance(FlameBenchmark.POINTS);
+			final long time = System.nanoTime() - start;
+
+			if (run >= 0) {
+				times[run] = time;
+			}
+			accu = image.build();
+		}
+
+		Arrays.sort(times);
+		System.out.printf("%-24s %8.2f Mpoints/s%n", name, FlameBenchmark.POINTS * 1e3 / times[0]);
+		return accu;
+	}
+
+	/**
+	 * Measure and print the speed of the sine and the cosine, on the
+	 * arguments of the Swirl variation (the square of a radius)
+	 * 
+	 * @param name
+	 *                The name of the measure
+	 * @param fast
+	 *                True to use {@link FastMath}, false to use
+	 *                {@link Math}
+	 */
+	private static void measureTrigonometry(final String name, final boolean fast) {
+		final long[] times = new long[FlameBenchmark.RUNS];
+		double sum = 0;
+
+		for (int run = -FlameBenchmark.RUNS; run < FlameBenchmark.RUNS; run++) {
+			final long start = System.nanoTime();
+			for (int i = 0; i < FlameBenchmark.POINTS; i++) {
+				final double x = i * 1e-5;
+				sum += fast ? FastMath.sin(x) + FastMath.cos(x) : Math.sin(x) + Math.cos(x);
+			}
+			final long time = System.nanoTime() - start;
+
+			if (run >= 0) {
+				times[run] = time;
+			}
+		}
+
+		Arrays.sort(times);
+		// print the sum, so that the JIT cannot drop the computation
+		System.out.printf("%-24s %8.2f Msin+cos/s (%.1f)%n", name, FlameBenchmark.POINTS * 1e3 / times[0], sum);
+	}
+
+	/**
+	 * Print the distance between two images: the mean and the maximum
+	 * difference of the intensities, and the mean difference of the
+	 * channels of the colors (from 0 to 255)
+	 * 
+	 * @param name
+	 *                The name of the comparison
+	 * @param reference
+	 *                The reference image
+	 * @param other
+	 *                The image to compare to the reference
+	 */
+	private static void printDistance(final String name, final FlameAccumulator reference,
+			final FlameAccumulator other) {
+		double intensity = 0, max = 0, color = 0;
+
+		for (int x = 0; x < reference.width(); x++) {
+			for (int y = 0; y < reference.height(); y++) {
+				final double d = Math.abs(reference.intensity(x, y) - other.intensity(x, y));
+				intensity += d;
+				max = Math.max(max, d);
+
+				final int a = reference.color(FlameBenchmark.PALETTE, Color.BLACK, x, y).asPackedRGB();
+				final int b = other.color(FlameBenchmark.PALETTE, Color.BLACK, x, y).asPackedRGB();
+				for (int shift = 0; shift < 24; shift += 8) {
+					color += Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF));
+				}
+			}
+		}
+
+		final int pixels = reference.width() * reference.height();
+		System.out.printf("%-24s intensity %.5f (max %.4f), color %.4f / 255%n", name, intensity / pixels,
+				max, color / (3 * pixels));
+	}
+}
@@ -0,0 +1,166 @@
+package ch.epfl.flamemaker.flame;
+
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
+
+/**
+ * The step of the chaos game of a {@link Flame}: transform a point by one of
+ * its {@link FlameTransformation}, chosen by its index
+ * <p>
+ * The default kernel, {@link Interpreted}, walks the compiled form of every
+ * transformation; {@link FlameKernelCompiler} can generate a class dedicated
+ * to one {@link Flame} which computes exactly the same points, and
+ * {@link Single} and {@link Fast} compute them in another {@link Precision}
+ * </p>
+ */
+abstract class FlameKernel {
+
+	/**
+	 * The kernel walking the {@link FlameTransformation.Kernel} of every
+	 * transformation with the approximated trigonometric functions
+	 */
+	static final class Fast extends FlameKernel {
+
+		/**
+		 * The compiled form of every transformation
+		 */
+		private final FlameTransformation.Kernel[]	kernels;
+
+		/**
+		 * Construct a kernel using the given compiled transformations
+		 * 
+		 * @param kernels
+		 *                The compiled form of every transformation
+		 */
+		Fast(final FlameTransformation.Kernel[] kernels) {
+			this.kernels = kernels;
+		}
+
+		@Override
+		boolean isSpecialized() {
+			return false;
+		}
+
+		@Override
+		Precision precision() {
+			return Precision.FAST;
+		}
+
+		@Override
+		void transformPoint(final int transformation, final double x, final double y,
+				final MutablePoint result) {
+			this.kernels[transformation].transformPointFast(x, y, result);
+		}
+	}
+
+	/**
+	 * The kernel walking the {@link FlameTransformation.Kernel} of every
+	 * transformation
+	 */
+	static final class Interpreted extends FlameKernel {
+
+		/**
+		 * The compiled form of every transformation
+		 */
+		private final FlameTransformation.Kernel[]	kernels;
+
+		/**
+		 * Construct a kernel using the given compiled transformations
+		 * 
+		 * @param kernels
+		 *                The compiled form of every transformation
+		 */
+		Interpreted(final FlameTransformation.Kernel[] kernels) {
+			this.kernels = kernels;
+		}
+
+		@Override
+		boolean isSpecialized() {
+			return false;
+		}
+
+		@Override
+		void transformPoint(final int transformation, final double x, final double y,
+				final MutablePoint result) {
+			this.kernels[transformation].transformPoint(x, y, result);
+		}
+	}
+
+	/**
+	 * The kernel walking the {@link FlameTransformation.Kernel} of every
+	 * transformation in single precision
+	 * <p>
+	 * The given point is rounded to floats, and the transformed point is
+	 * made of floats, thus a walker only ever holds floats
+	 * </p>
+	 */
+	static final class Single extends FlameKernel {
+
+		/**
+		 * The compiled form of every transformation
+		 */
+		private final FlameTransformation.Kernel[]	kernels;
+
+		/**
+		 * Construct a kernel using the given compiled transformations
+		 * 
+		 * @param kernels
+		 *                The compiled form of every transformation
+		 */
+		Single(final FlameTransformation.Kernel[] kernels) {
+			this.kernels = kernels;
+		}
+
+		@Override
+		boolean isSpecialized() {
+			return false;
+		}
+
+		@Override
+		Precision precision() {
+			return Precision.SINGLE;
+		}
+
+		@Override
+		void transformPoint(final int transformation, final double x, final double y,
+				final MutablePoint result) {
+			this.kernels[transformation].transformPoint((float) x, (float) y, result);
+		}
+	}
+
+	/**
+	 * Return true if this kernel was generated for one {@link Flame}
+	 * 
+	 * @return True if this kernel was generated for one {@link Flame}
+	 */
+	boolean isSpecialized() {
+		return true;
+	}
+
+	/**
+	 * Return the precision of the numbers used to transform the points
+	 * 
+	 * @return The precision of the numbers used to transform the points
+	 */
+	Precision precision() {
+		return Precision.DOUBLE;
+	}
+
+	/**
+	 * Transform the point (x, y) by the transformation at the given index
+	 * and write the result into the given {@link MutablePoint}
+	 * 
+	 * @param transformation
+	 *                The index of the transformation to use
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * @param result
+	 *                The {@link MutablePoint} to write the transformed point
+	 *                to
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if there is no transformation at the given index
+	 */
+	abstract void transformPoint(int transformation, double x, double y, MutablePoint result);
+}
@@ -0,0 +1,792 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Generate, for one {@link Flame}, a {@link FlameKernel} with the coefficients
+ * of every affine transformation and the weight of every variation written as
+ * constants in the bytecode, and the variations without weight dropped
+ * <p>
+ * The generated class is a hidden class, unloaded with its kernel. Every
+ * operation is done in the same order as in
+ * {@link FlameTransformation.Kernel} and {@link Variation}, so that both
+ * kernels give exactly the same points.
+ * </p>
+ */
+final class FlameKernelCompiler {
+
+	/**
+	 * The constant pool of the class being generated
+	 */
+	private static final class ConstantPool {
+
+		/**
+		 * The index of every constant already added
+		 */
+		private final HashMap<String, Integer>	indexes;
+
+		/**
+		 * The next free index
+		 */
+		private int				next;
+
+		/**
+		 * The encoded constants
+		 */
+		private final ByteArrayOutputStream	pool;
+
+		/**
+		 * The stream used to encode the constants
+		 */
+		private final DataOutputStream		stream;
+
+		/**
+		 * Construct an empty constant pool
+		 */
+		ConstantPool() {
+			this.indexes = new HashMap<String, Integer>();
+			this.next = 1;
+			this.pool = new ByteArrayOutputStream();
+			this.stream = new DataOutputStream(this.pool);
+		}
+
+		/**
+		 * Return the index of the given class, which is added if needed
+		 * 
+		 * @param name
+		 *                The internal name of the class
+		 * 
+		 * @return The index of the class
+		 * 
+		 * @throws IOException
+		 *                 never, as it is written in memory
+		 */
+		int classRef(final String name) throws IOException {
+			final String key = "Class " + name;
+			Integer index = this.indexes.get(key);
+			if (index == null) {
+				final int utf8 = this.utf8(name);
+				this.stream.writeByte(7);
+				this.stream.writeShort(utf8);
+				index = this.add(key, 1);
+			}
+			return index;
+		}
+
+		/**
+		 * Return the number of entries, as written in the class file
+		 * 
+		 * @return The number of entries of the constant pool
+		 */
+		int count() {
+			return this.next;
+		}
+
+		/**
+		 * Return the index of the given double, which is added if needed
+		 * 
+		 * @param value
+		 *                The double to add
+		 * 
+		 * @return The index of the double
+		 * 
+		 * @throws IOException
+		 *                 never, as it is written in memory
+		 */
+		int doubleConstant(final double value) throws IOException {
+			final long bits = Double.doubleToRawLongBits(value);
+			final String key = "Double " + bits;
+			Integer index = this.indexes.get(key);
+			if (index == null) {
+				this.stream.writeByte(6);
+				this.stream.writeLong(bits);
+
+				// a double takes two entries
+				index = this.add(key, 2);
+			}
+			return index;
+		}
+
+		/**
+		 * Return the index of the given method, which is added if needed
+		 * 
+		 * @param owner
+		 *                The internal name of the class of the method
+		 * @param name
+		 *                The name of the method
+		 * @param descriptor
+		 *                The descriptor of the method
+		 * 
+		 * @return The index of the method
+		 * 
+		 * @throws IOException
+		 *                 never, as it is written in memory
+		 */
+		int methodRef(final String owner, final String name, final String descriptor) throws IOException {
+			final String key = "Method " + owner + "." + name + descriptor;
+			Integer index = this.indexes.get(key);
+			if (index == null) {
+				final int ownerIndex = this.classRef(owner);
+				final int nameIndex = this.utf8(name);
+				final int descriptorIndex = this.utf8(descriptor);
+
+				this.stream.writeByte(12);
+				this.stream.writeShort(nameIndex);
+				this.stream.writeShort(descriptorIndex);
+				final int nameAndType = this.add("NameAndType " + key, 1);
+
+				this.stream.writeByte(10);
+				this.stream.writeShort(ownerIndex);
+				this.stream.writeShort(nameAndType);
+				index = this.add(key, 1);
+			}
+			return index;
+		}
+
+		/**
+		 * Return the index of the given string, which is added if needed
+		 * 
+		 * @param value
+		 *                The string to add, only made of ASCII
+		 *                characters
+		 * 
+		 * @return The index of the string
+		 * 
+		 * @throws IOException
+		 *                 never, as it is written in memory
+		 */
+		int utf8(final String value) throws IOException {
+			final String key = "Utf8 " + value;
+			Integer index = this.indexes.get(key);
+			if (index == null) {
+				this.stream.writeByte(1);
+				this.stream.writeUTF(value);
+				index = this.add(key, 1);
+			}
+			return index;
+		}
+
+		/**
+		 * Write the constant pool to the given stream
+		 * 
+		 * @param out
+		 *                The stream of the class file
+		 * 
+		 * @throws IOException
+		 *                 if the stream cannot be written
+		 */
+		void writeTo(final DataOutputStream out) throws IOException {
+			this.stream.flush();
+			out.writeShort(this.count());
+			this.pool.writeTo(out);
+		}
+
+		/**
+		 * Register the constant just written under the given key
+		 * 
+		 * @param key
+		 *                The key of the constant
+		 * @param size
+		 *                The number of entries taken by the constant
+		 * 
+		 * @return The index of the constant
+		 */
+		private int add(final String key, final int size) {
+			final int index = this.next;
+			this.indexes.put(key, index);
+			this.next += size;
+			return index;
+		}
+	}
+
+	/**
+	 * Opcodes used by the generated code
+	 */
+	private static final int	ALOAD = 0x19, ATHROW = 0xbf, DADD = 0x63, DCONST_0 = 0x0e, DDIV = 0x6f,
+			DLOAD = 0x18, DMUL = 0x6b, DSTORE = 0x39, DSUB = 0x67, DUP = 0x59, ILOAD_1 = 0x1b,
+			INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, INVOKEVIRTUAL = 0xb6, LDC2_W = 0x14,
+			NEW = 0xbb, RETURN = 0xb1, TABLESWITCH = 0xaa;
+
+	/**
+	 * The internal name of the {@link ch.epfl.flamemaker.geometry2d.MutablePoint}
+	 */
+	private static final String	MUTABLE_POINT	= "ch/epfl/flamemaker/geometry2d/MutablePoint";
+
+	/**
+	 * The internal name of the generated class, in the package of
+	 * {@link FlameKernel} so that it can extend it
+	 */
+	private static final String	NAME		= "ch/epfl/flamemaker/flame/SpecializedFlameKernel";
+
+	/**
+	 * The internal name of {@link FlameKernel}
+	 */
+	private static final String	SUPER		= "ch/epfl/flamemaker/flame/FlameKernel";
+
+	/**
+	 * Local variables of transformPoint: the arguments, then the
+	 * temporaries
+	 */
+	private static final int	X = 2, Y = 4, RESULT = 6, AFFINE_X = 7, AFFINE_Y = 9, R2 = 11, R = 13,
+			SUM_X = 15, SUM_Y = 17, SIN = 19, COS = 21, D = 23, LOCALS = 25;
+
+	/**
+	 * The constant pool of the class being generated
+	 */
+	private final ConstantPool	constants;
+
+	/**
+	 * Generate a {@link FlameKernel} dedicated to the given compiled
+	 * transformations
+	 * 
+	 * @param kernels
+	 *                The compiled form of every transformation of the
+	 *                {@link Flame}
+	 * 
+	 * @return The generated {@link FlameKernel}
+	 * 
+	 * @throws IllegalStateException
+	 *                 if the class cannot be generated or loaded (e.g. the
+	 *                 code is too large or the virtual machine does not
+	 *                 support hidden classes), the interpreted kernel must
+	 *                 then be used
+	 */
+	static FlameKernel compile(final FlameTransformation.Kernel[] kernels) {
+		try {
+			final byte[] bytes = new FlameKernelCompiler().classFile(kernels);
+
+			final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			return (FlameKernel) lookup.lookupClass().getDeclaredConstructor().newInstance();
+
+		} catch (final IOException | ReflectiveOperationException | LinkageError | IllegalArgumentException e) {
+			// only the failures to generate or load the class, the others
+			// are not hidden behind the interpreted kernel
+			throw new IllegalStateException("unable to specialize the kernel", e);
+		}
+	}
+
+	/**
+	 * Write the loading of the given double local variable
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param local
+	 *                The local variable to load
+	 */
+	private static void load(final ByteArrayOutputStream code, final int local) {
+		code.write(FlameKernelCompiler.DLOAD);
+		code.write(local);
+	}
+
+	/**
+	 * Write the storing of a double into the given local variable
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param local
+	 *                The local variable to store to
+	 */
+	private static void store(final ByteArrayOutputStream code, final int local) {
+		code.write(FlameKernelCompiler.DSTORE);
+		code.write(local);
+	}
+
+	/**
+	 * Construct a compiler with an empty constant pool
+	 */
+	private FlameKernelCompiler() {
+		this.constants = new ConstantPool();
+	}
+
+	/**
+	 * Write the computation of x * a + y * b + c with the given
+	 * coefficients and store it in the given local variable
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param a
+	 *                The factor of x
+	 * @param b
+	 *                The factor of y
+	 * @param c
+	 *                The constant term
+	 * @param local
+	 *                The local variable to store the result in
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void affine(final ByteArrayOutputStream code, final double a, final double b, final double c,
+			final int local) throws IOException {
+		FlameKernelCompiler.load(code, FlameKernelCompiler.X);
+		this.constant(code, a);
+		code.write(FlameKernelCompiler.DMUL);
+		FlameKernelCompiler.load(code, FlameKernelCompiler.Y);
+		this.constant(code, b);
+		code.write(FlameKernelCompiler.DMUL);
+		code.write(FlameKernelCompiler.DADD);
+		this.constant(code, c);
+		code.write(FlameKernelCompiler.DADD);
+		FlameKernelCompiler.store(code, local);
+	}
+
+	/**
+	 * Write the code of one transformation, which ends by setting the
+	 * result
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param kernel
+	 *                The compiled transformation
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void caseOf(final ByteArrayOutputStream code, final FlameTransformation.Kernel kernel)
+			throws IOException {
+		final double[] m = kernel.affineTransformation().coefficients();
+		final int[] variations = kernel.variations();
+		final double[] weights = kernel.weights();
+
+		this.affine(code, m[0], m[1], m[2], FlameKernelCompiler.AFFINE_X);
+		this.affine(code, m[3], m[4], m[5], FlameKernelCompiler.AFFINE_Y);
+
+		// the square of the radius is needed by every variation but
+		// linear and sinusoidal
+		boolean radius2 = false, radius = false;
+		for (final int v : variations) {
+			radius2 |= v != Variation.LINEAR && v != Variation.SINUSOIDAL;
+			radius |= Variation.needsRadius(v);
+		}
+
+		if (radius2) {
+			FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_X);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_X);
+			code.write(FlameKernelCompiler.DMUL);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_Y);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_Y);
+			code.write(FlameKernelCompiler.DMUL);
+			code.write(FlameKernelCompiler.DADD);
+			FlameKernelCompiler.store(code, FlameKernelCompiler.R2);
+		}
+		if (radius) {
+			FlameKernelCompiler.load(code, FlameKernelCompiler.R2);
+			this.math(code, "sqrt");
+			FlameKernelCompiler.store(code, FlameKernelCompiler.R);
+		}
+
+		code.write(FlameKernelCompiler.DCONST_0);
+		FlameKernelCompiler.store(code, FlameKernelCompiler.SUM_X);
+		code.write(FlameKernelCompiler.DCONST_0);
+		FlameKernelCompiler.store(code, FlameKernelCompiler.SUM_Y);
+
+		for (int i = 0; i < variations.length; i++) {
+			this.prepare(code, variations[i]);
+			this.sum(code, FlameKernelCompiler.SUM_X, variations[i], true, weights[i]);
+			this.sum(code, FlameKernelCompiler.SUM_Y, variations[i], false, weights[i]);
+		}
+
+		code.write(FlameKernelCompiler.ALOAD);
+		code.write(FlameKernelCompiler.RESULT);
+		FlameKernelCompiler.load(code, FlameKernelCompiler.SUM_X);
+		FlameKernelCompiler.load(code, FlameKernelCompiler.SUM_Y);
+		this.invoke(code, FlameKernelCompiler.INVOKEVIRTUAL, FlameKernelCompiler.MUTABLE_POINT, "set", "(DD)V");
+		code.write(FlameKernelCompiler.RETURN);
+	}
+
+	/**
+	 * Return the class file of the kernel dedicated to the given compiled
+	 * transformations
+	 * 
+	 * @param kernels
+	 *                The compiled form of every transformation
+	 * 
+	 * @return The bytes of the class file
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private byte[] classFile(final FlameTransformation.Kernel[] kernels) throws IOException {
+		final int thisClass = this.constants.classRef(FlameKernelCompiler.NAME);
+		final int superClass = this.constants.classRef(FlameKernelCompiler.SUPER);
+		final byte[] constructor = this.constructor();
+		final byte[] transformPoint = this.transformPoint(kernels);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+
+		// Java 8 class file, final and super
+		out.writeInt(0xcafebabe);
+		out.writeShort(0);
+		out.writeShort(52);
+		this.constants.writeTo(out);
+		out.writeShort(0x0030);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+
+		// no interface nor field
+		out.writeShort(0);
+		out.writeShort(0);
+
+		out.writeShort(2);
+		out.write(constructor);
+		out.write(transformPoint);
+
+		// no attribute
+		out.writeShort(0);
+		out.flush();
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write the loading of the given double constant
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param value
+	 *                The constant to load
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void constant(final ByteArrayOutputStream code, final double value) throws IOException {
+		final int index = this.constants.doubleConstant(value);
+		code.write(FlameKernelCompiler.LDC2_W);
+		code.write(index >> 8);
+		code.write(index);
+	}
+
+	/**
+	 * Return the method calling the constructor of {@link FlameKernel}
+	 * 
+	 * @return The bytes of the method
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private byte[] constructor() throws IOException {
+		final ByteArrayOutputStream code = new ByteArrayOutputStream();
+		code.write(FlameKernelCompiler.ALOAD);
+		code.write(0);
+		this.invoke(code, FlameKernelCompiler.INVOKESPECIAL, FlameKernelCompiler.SUPER, "<init>", "()V");
+		code.write(FlameKernelCompiler.RETURN);
+
+		return this.method(0, "<init>", "()V", 1, 1, code.toByteArray(), new int[0]);
+	}
+
+	/**
+	 * Write a call to the given method
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param opcode
+	 *                The instruction of the call
+	 * @param owner
+	 *                The internal name of the class of the method
+	 * @param name
+	 *                The name of the method
+	 * @param descriptor
+	 *                The descriptor of the method
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void invoke(final ByteArrayOutputStream code, final int opcode, final String owner,
+			final String name, final String descriptor) throws IOException {
+		final int index = this.constants.methodRef(owner, name, descriptor);
+		code.write(opcode);
+		code.write(index >> 8);
+		code.write(index);
+	}
+
+	/**
+	 * Write a call to the given function of {@link Math}, taking and
+	 * returning a double
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param name
+	 *                The name of the function
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void math(final ByteArrayOutputStream code, final String name) throws IOException {
+		this.invoke(code, FlameKernelCompiler.INVOKESTATIC, "java/lang/Math", name, "(D)D");
+	}
+
+	/**
+	 * Return the encoded method with the given code
+	 * 
+	 * @param access
+	 *                The access flags of the method
+	 * @param name
+	 *                The name of the method
+	 * @param descriptor
+	 *                The descriptor of the method
+	 * @param maxStack
+	 *                The maximum size of the operand stack
+	 * @param maxLocals
+	 *                The number of local variables
+	 * @param code
+	 *                The bytecode of the method
+	 * @param targets
+	 *                The offset of every branch target, all of them with
+	 *                the local variables of the start of the method and an
+	 *                empty stack
+	 * 
+	 * @return The bytes of the method
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private byte[] method(final int access, final String name, final String descriptor, final int maxStack,
+			final int maxLocals, final byte[] code, final int[] targets) throws IOException {
+		if (code.length > 0xffff) {
+			throw new IllegalStateException("too many transformations to specialize");
+		}
+
+		final int nameIndex = this.constants.utf8(name);
+		final int descriptorIndex = this.constants.utf8(descriptor);
+		final int codeIndex = this.constants.utf8("Code");
+
+		// one same_frame_extended by target, the frames given in order
+		final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		final DataOutputStream framesOut = new DataOutputStream(frames);
+		if (targets.length > 0) {
+			framesOut.writeShort(this.constants.utf8("StackMapTable"));
+			framesOut.writeInt(2 + 3 * targets.length);
+			framesOut.writeShort(targets.length);
+			for (int i = 0; i < targets.length; i++) {
+				framesOut.writeByte(251);
+				framesOut.writeShort(i == 0 ? targets[0] : targets[i] - targets[i - 1] - 1);
+			}
+		}
+		framesOut.flush();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeShort(access);
+		out.writeShort(nameIndex);
+		out.writeShort(descriptorIndex);
+		out.writeShort(1);
+
+		out.writeShort(codeIndex);
+		out.writeInt(12 + code.length + frames.size());
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+
+		// no exception handler, and the frames if any
+		out.writeShort(0);
+		out.writeShort(targets.length > 0 ? 1 : 0);
+		frames.writeTo(out);
+		out.flush();
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write the computation of the values shared by both coordinates of
+	 * the given variation
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param variation
+	 *                The index of the variation
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void prepare(final ByteArrayOutputStream code, final int variation) throws IOException {
+		switch (variation) {
+
+		case Variation.SWIRL:
+			FlameKernelCompiler.load(code, FlameKernelCompiler.R2);
+			this.math(code, "sin");
+			FlameKernelCompiler.store(code, FlameKernelCompiler.SIN);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.R2);
+			this.math(code, "cos");
+			FlameKernelCompiler.store(code, FlameKernelCompiler.COS);
+			break;
+
+		case Variation.BUBBLE:
+			FlameKernelCompiler.load(code, FlameKernelCompiler.R2);
+			this.constant(code, 4);
+			code.write(FlameKernelCompiler.DADD);
+			FlameKernelCompiler.store(code, FlameKernelCompiler.D);
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Write sum = sum + v * weight, where v is one coordinate of the given
+	 * variation
+	 * 
+	 * @param code
+	 *                The code of the method
+	 * @param sum
+	 *                The local variable of the sum
+	 * @param variation
+	 *                The index of the variation
+	 * @param x
+	 *                True for the x coordinate, false for the y one
+	 * @param weight
+	 *                The weight of the variation
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private void sum(final ByteArrayOutputStream code, final int sum, final int variation, final boolean x,
+			final double weight) throws IOException {
+		final int first = x ? FlameKernelCompiler.AFFINE_X : FlameKernelCompiler.AFFINE_Y;
+
+		FlameKernelCompiler.load(code, sum);
+		switch (variation) {
+
+		case Variation.LINEAR:
+			FlameKernelCompiler.load(code, first);
+			break;
+
+		case Variation.SINUSOIDAL:
+			FlameKernelCompiler.load(code, first);
+			this.math(code, "sin");
+			break;
+
+		case Variation.SPHERICAL:
+			FlameKernelCompiler.load(code, first);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.R2);
+			code.write(FlameKernelCompiler.DDIV);
+			break;
+
+		case Variation.SWIRL:
+			// x * sin - y * cos, or x * cos + y * sin
+			FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_X);
+			FlameKernelCompiler.load(code, x ? FlameKernelCompiler.SIN : FlameKernelCompiler.COS);
+			code.write(FlameKernelCompiler.DMUL);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_Y);
+			FlameKernelCompiler.load(code, x ? FlameKernelCompiler.COS : FlameKernelCompiler.SIN);
+			code.write(FlameKernelCompiler.DMUL);
+			code.write(x ? FlameKernelCompiler.DSUB : FlameKernelCompiler.DADD);
+			break;
+
+		case Variation.HORSESHOE:
+			if (x) {
+				// (x - y) * (x + y) / r
+				FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_X);
+				FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_Y);
+				code.write(FlameKernelCompiler.DSUB);
+				FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_X);
+				FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_Y);
+				code.write(FlameKernelCompiler.DADD);
+				code.write(FlameKernelCompiler.DMUL);
+			} else {
+				// 2 * x * y / r
+				this.constant(code, 2);
+				FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_X);
+				code.write(FlameKernelCompiler.DMUL);
+				FlameKernelCompiler.load(code, FlameKernelCompiler.AFFINE_Y);
+				code.write(FlameKernelCompiler.DMUL);
+			}
+			FlameKernelCompiler.load(code, FlameKernelCompiler.R);
+			code.write(FlameKernelCompiler.DDIV);
+			break;
+
+		case Variation.BUBBLE:
+			this.constant(code, 4);
+			FlameKernelCompiler.load(code, first);
+			code.write(FlameKernelCompiler.DMUL);
+			FlameKernelCompiler.load(code, FlameKernelCompiler.D);
+			code.write(FlameKernelCompiler.DDIV);
+			break;
+
+		default:
+			throw new IndexOutOfBoundsException();
+		}
+
+		this.constant(code, weight);
+		code.write(FlameKernelCompiler.DMUL);
+		code.write(FlameKernelCompiler.DADD);
+		FlameKernelCompiler.store(code, sum);
+	}
+
+	/**
+	 * Return the method transforming a point by the transformation at the
+	 * given index, a table switch on the index with one case by
+	 * transformation
+	 * 
+	 * @param kernels
+	 *                The compiled form of every transformation
+	 * 
+	 * @return The bytes of the method
+	 * 
+	 * @throws IOException
+	 *                 never, as it is written in memory
+	 */
+	private byte[] transformPoint(final FlameTransformation.Kernel[] kernels) throws IOException {
+		final List<byte[]> cases = new ArrayList<byte[]>();
+		for (final FlameTransformation.Kernel kernel : kernels) {
+			final ByteArrayOutputStream code = new ByteArrayOutputStream();
+			this.caseOf(code, kernel);
+			cases.add(code.toByteArray());
+		}
+
+		// any other index throws an IndexOutOfBoundsException
+		final ByteArrayOutputStream fallback = new ByteArrayOutputStream();
+		final int exception = this.constants.classRef("java/lang/IndexOutOfBoundsException");
+		fallback.write(FlameKernelCompiler.NEW);
+		fallback.write(exception >> 8);
+		fallback.write(exception);
+		fallback.write(FlameKernelCompiler.DUP);
+		this.invoke(fallback, FlameKernelCompiler.INVOKESPECIAL, "java/lang/IndexOutOfBoundsException",
+				"<init>", "()V");
+		fallback.write(FlameKernelCompiler.ATHROW);
+
+		// iload_1 then the switch, its operands aligned on four bytes
+		final int padding = 2;
+		final int start = 2 + padding + 12 + 4 * cases.size();
+
+		final int[] targets = new int[cases.size() + 1];
+		int offset = start;
+		for (int i = 0; i < cases.size(); i++) {
+			targets[i] = offset;
+			offset += cases.get(i).length;
+		}
+		targets[cases.size()] = offset;
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream code = new DataOutputStream(bytes);
+		code.writeByte(FlameKernelCompiler.ILOAD_1);
+		code.writeByte(FlameKernelCompiler.TABLESWITCH);
+		for (int i = 0; i < padding; i++) {
+			code.writeByte(0);
+		}
+
+		// the offsets are relative to the switch instruction
+		code.writeInt(targets[cases.size()] - 1);
+		code.writeInt(0);
+		code.writeInt(cases.size() - 1);
+		for (int i = 0; i < cases.size(); i++) {
+			code.writeInt(targets[i] - 1);
+		}
+		for (final byte[] c : cases) {
+			code.write(c);
+		}
+		fallback.writeTo(code);
+		code.flush();
+
+		return this.method(0, "transformPoint", "(IDDL" + FlameKernelCompiler.MUTABLE_POINT + ";)V", 12,
+				FlameKernelCompiler.LOCALS, bytes.toByteArray(), targets);
+	}
+}
@@ -172,11 +172,14 @@ public class FlamePGMMaker {
 		stream.println(accu.width() + " " + accu.height());
 		stream.println(100);
 
+		// the rows are contiguous in the accumulator, and the line is
+		// built without copying it for every value
+		final StringBuilder line = new StringBuilder();
 		for (int y = accu.height() - 1; y >= 0; y--) {
-			String line = new String();
+			line.setLength(0);
 			for (int x = 0; x < accu.width(); x++) {
-				line += (int) (accu.intensity(x, y) * 100.0);
-				line += ((x + 1 == accu.width()) ? "" : " ");
+				line.append((int) (accu.intensity(x, y) * 100.0));
+				line.append((x + 1 == accu.width()) ? "" : " ");
 			}
 			stream.println(line);
 		}
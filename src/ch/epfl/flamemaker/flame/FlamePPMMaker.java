@@ -20,6 +20,12 @@ import ch.epfl.flamemaker.geometry2d.Rectangle;
  */
 public class FlamePPMMaker {
 
+	/**
+	 * The maximum value of the colors written, from the original format of
+	 * the images
+	 */
+	private static final int	PPM_MAX	= 100;
+
 	/**
 	 * Generate all fractals, by using threads
 	 * 
@@ -71,6 +77,68 @@ public class FlamePPMMaker {
 		turbulenceThread.start();
 	}
 
+	/**
+	 * Return the Shark Fin fractal
+	 * 
+	 * @return The {@link Flame} of the Shark Fin fractal
+	 */
+	public static Flame sharkFin() {
+		final Flame.Builder builder = new Flame.Builder(new Flame(new ArrayList<FlameTransformation>()));
+		final double[][] array = { { 1, 0.1, 0, 0, 0, 0 }, { 0, 0, 0, 0, 0.8, 1 }, { 1, 0, 0, 0, 0, 0 } };
+
+		AffineTransformation affine = new AffineTransformation(-0.4113504, -0.7124804, -0.4, 0.7124795,
+				-0.4113508, 0.8);
+		builder.addTransformation(new FlameTransformation(affine, array[0]));
+
+		affine = new AffineTransformation(-0.3957339, 0, -1.6, 0, -0.3957337, 0.2);
+		builder.addTransformation(new FlameTransformation(affine, array[1]));
+
+		affine = new AffineTransformation(0.4810169, 0, 1, 0, 0.4810169, 0.9);
+		builder.addTransformation(new FlameTransformation(affine, array[2]));
+
+		return builder.build();
+	}
+
+	/**
+	 * Return the scope of the Shark Fin fractal
+	 * 
+	 * @return The scope of the Shark Fin fractal
+	 */
+	public static Rectangle sharkFinFrame() {
+		return new Rectangle(new Point(-0.25, 0), 5, 4);
+	}
+
+	/**
+	 * Return the Turbulence fractal
+	 * 
+	 * @return The {@link Flame} of the Turbulence fractal
+	 */
+	public static Flame turbulence() {
+		final Flame.Builder builder = new Flame.Builder(new Flame(new ArrayList<FlameTransformation>()));
+		final double[][] array = { { 0.5, 0, 0, 0.4, 0, 0 }, { 1, 0, 0.1, 0, 0, 0 }, { 1, 0, 0, 0, 0, 0 } };
+
+		AffineTransformation affine = new AffineTransformation(0.7124807, -0.4113509, -0.3, 0.4113513,
+				0.7124808, -0.7);
+		builder.addTransformation(new FlameTransformation(affine, array[0]));
+
+		affine = new AffineTransformation(0.3731079, -0.6462417, 0.4, 0.6462414, 0.3731076, 0.3);
+		builder.addTransformation(new FlameTransformation(affine, array[1]));
+
+		affine = new AffineTransformation(0.0842641, -0.314478, -0.1, 0.314478, 0.0842641, 0.3);
+		builder.addTransformation(new FlameTransformation(affine, array[2]));
+
+		return builder.build();
+	}
+
+	/**
+	 * Return the scope of the Turbulence fractal
+	 * 
+	 * @return The scope of the Turbulence fractal
+	 */
+	public static Rectangle turbulenceFrame() {
+		return new Rectangle(new Point(0.1, 0.1), 3, 3);
+	}
+
 	/**
 	 * Write a {@link FlameAccumulator} to a stream
 	 * 
@@ -80,26 +148,27 @@ public class FlamePPMMaker {
 	 *                The stream to write the fractal to
 	 */
 	public static void writeToPPM(final FlameAccumulator accu, final PrintStream stream) {
-		stream.println("P3");
-		stream.println(accu.width() + " " + accu.height());
-		stream.println(100);
+		FlamePPMMaker.writeToPPM(accu, FlamePPMMaker.defaultPalette(), Color.BLACK, stream);
+	}
 
-		// the default palette
-		final ArrayList<Color> list = new ArrayList<Color>(3);
-		list.add(Color.RED);
-		list.add(Color.GREEN);
-		list.add(Color.BLUE);
-		final Palette palette = new InterpolatedPalette(list);
-
-		for (int y = accu.height() - 1; y >= 0; y--) {
-			String line = new String();
-			for (int x = 0; x < accu.width(); x++) {
-				final Color c = accu.color(palette, Color.BLACK, x, y);
-				line += (Color.sRGBEncode(c.red(), 100)) + " ";
-				line += (Color.sRGBEncode(c.green(), 100)) + " ";
-				line += (Color.sRGBEncode(c.blue(), 100)) + " ";
-			}
-			stream.println(line);
+	/**
+	 * Write a {@link FlameAccumulator} to a stream, with the given colors,
+	 * the whole image being colored in parallel before being written
+	 * 
+	 * @param accu
+	 *                The accumulator containing a fractal
+	 * @param palette
+	 *                The {@link Palette} of the colors
+	 * @param background
+	 *                The {@link Color} of the background
+	 * @param stream
+	 *                The stream to write the fractal to
+	 */
+	public static void writeToPPM(final FlameAccumulator accu, final Palette palette, final Color background,
+			final PrintStream stream) {
+		final int[] pixels = accu.packedImage(palette, background, new int[accu.width() * accu.height()]);
+		for (int y = 0; y < accu.height(); y++) {
+			FlamePPMMaker.writeToPPMIncremental(pixels, accu.width(), stream, y);
 		}
 	}
 
@@ -114,27 +183,71 @@ public class FlamePPMMaker {
 	 *                The line to write (if 0, add the header)
 	 */
 	public static void writeToPPMIncremental(final FlameAccumulator accu, final PrintStream stream, final int y) {
+		FlamePPMMaker.writeToPPMIncremental(accu, FlamePPMMaker.defaultPalette(), Color.BLACK, stream, y);
+	}
+
+	/**
+	 * Write the line wanted of a {@link FlameAccumulator} to a stream, with
+	 * the given colors
+	 * 
+	 * @param accu
+	 *                The accumulator containing a fractal
+	 * @param palette
+	 *                The {@link Palette} of the colors
+	 * @param background
+	 *                The {@link Color} of the background
+	 * @param stream
+	 *                The stream to write the fractal to
+	 * @param y
+	 *                The line to write (if 0, add the header)
+	 */
+	public static void writeToPPMIncremental(final FlameAccumulator accu, final Palette palette,
+			final Color background, final PrintStream stream, final int y) {
 		if (y == 0) {
-			stream.println("P3");
-			stream.println(accu.width() + " " + accu.height());
-			stream.println(100);
+			FlamePPMMaker.writeHeader(accu.width(), accu.height(), stream);
 		}
 
-		// the default palette
+		final int[] row = accu.packedRow(palette, background, accu.height() - y - 1, new int[accu.width()]);
+		FlamePPMMaker.writeRow(row, 0, accu.width(), stream);
+	}
+
+	/**
+	 * Write the line wanted of an image colored by
+	 * {@link FlameAccumulator#packedImage(Palette, Color, int[])} to a
+	 * stream, so that the coloring is done in parallel once for the whole
+	 * image
+	 * 
+	 * @param pixels
+	 *                The colors of the image, packed, row after row from
+	 *                the top one
+	 * @param width
+	 *                The width of the image
+	 * @param stream
+	 *                The stream to write the image to
+	 * @param y
+	 *                The line to write, from the top (if 0, add the
+	 *                header)
+	 */
+	public static void writeToPPMIncremental(final int[] pixels, final int width, final PrintStream stream,
+			final int y) {
+		if (y == 0) {
+			FlamePPMMaker.writeHeader(width, pixels.length / width, stream);
+		}
+
+		FlamePPMMaker.writeRow(pixels, y * width, width, stream);
+	}
+
+	/**
+	 * Return the default palette, from red to blue through green
+	 * 
+	 * @return The default {@link Palette}
+	 */
+	private static Palette defaultPalette() {
 		final ArrayList<Color> list = new ArrayList<Color>(3);
 		list.add(Color.RED);
 		list.add(Color.GREEN);
 		list.add(Color.BLUE);
-		final Palette palette = new InterpolatedPalette(list);
-
-		String line = new String();
-		for (int x = 0; x < accu.width(); x++) {
-			final Color c = accu.color(palette, Color.BLACK, x, accu.height() - y - 1);
-			line += (Color.sRGBEncode(c.red(), 100)) + " ";
-			line += (Color.sRGBEncode(c.green(), 100)) + " ";
-			line += (Color.sRGBEncode(c.blue(), 100)) + " ";
-		}
-		stream.println(line);
+		return new InterpolatedPalette(list);
 	}
 
 	/**
@@ -143,21 +256,7 @@ public class FlamePPMMaker {
 	 * @return A {@link FlameAccumulator} containing the fractal
 	 */
 	private static FlameAccumulator generateSharkFin() {
-		final Flame.Builder builder = new Flame.Builder(new Flame(new ArrayList<FlameTransformation>()));
-		final double[][] array = { { 1, 0.1, 0, 0, 0, 0 }, { 0, 0, 0, 0, 0.8, 1 }, { 1, 0, 0, 0, 0, 0 } };
-		final Rectangle center = new Rectangle(new Point(-0.25, 0), 5, 4);
-
-		AffineTransformation affine = new AffineTransformation(-0.4113504, -0.7124804, -0.4, 0.7124795,
-				-0.4113508, 0.8);
-		builder.addTransformation(new FlameTransformation(affine, array[0]));
-
-		affine = new AffineTransformation(-0.3957339, 0, -1.6, 0, -0.3957337, 0.2);
-		builder.addTransformation(new FlameTransformation(affine, array[1]));
-
-		affine = new AffineTransformation(0.4810169, 0, 1, 0, 0.4810169, 0.9);
-		builder.addTransformation(new FlameTransformation(affine, array[2]));
-
-		return builder.build().compute(center, 500, 400, 50);
+		return FlamePPMMaker.sharkFin().compute(FlamePPMMaker.sharkFinFrame(), 500, 400, 50);
 	}
 
 	/**
@@ -166,20 +265,62 @@ public class FlamePPMMaker {
 	 * @return A {@link FlameAccumulator} containing the fractal
 	 */
 	private static FlameAccumulator generateTurbulence() {
-		final Flame.Builder builder = new Flame.Builder(new Flame(new ArrayList<FlameTransformation>()));
-		final double[][] array = { { 0.5, 0, 0, 0.4, 0, 0 }, { 1, 0, 0.1, 0, 0, 0 }, { 1, 0, 0, 0, 0, 0 } };
-		final Rectangle center = new Rectangle(new Point(0.1, 0.1), 3, 3);
-
-		AffineTransformation affine = new AffineTransformation(0.7124807, -0.4113509, -0.3, 0.4113513,
-				0.7124808, -0.7);
-		builder.addTransformation(new FlameTransformation(affine, array[0]));
+		return FlamePPMMaker.turbulence().compute(FlamePPMMaker.turbulenceFrame(), 500, 400, 50);
+	}
 
-		affine = new AffineTransformation(0.3731079, -0.6462417, 0.4, 0.6462414, 0.3731076, 0.3);
-		builder.addTransformation(new FlameTransformation(affine, array[1]));
+	/**
+	 * Round a value of a packed color to the nearest value from 0 to
+	 * {@link #PPM_MAX}
+	 * 
+	 * @param value
+	 *                The value, from 0 to 255
+	 * 
+	 * @return The value written
+	 */
+	private static int quantize(final int value) {
+		return (value * FlamePPMMaker.PPM_MAX + 127) / 255;
+	}
 
-		affine = new AffineTransformation(0.0842641, -0.314478, -0.1, 0.314478, 0.0842641, 0.3);
-		builder.addTransformation(new FlameTransformation(affine, array[2]));
+	/**
+	 * Write the header of a PPM image, whose values go from 0 to
+	 * {@link #PPM_MAX}
+	 * 
+	 * @param width
+	 *                The width of the image
+	 * @param height
+	 *                The height of the image
+	 * @param stream
+	 *                The stream to write the header to
+	 */
+	private static void writeHeader(final int width, final int height, final PrintStream stream) {
+		stream.println("P3");
+		stream.println(width + " " + height);
+		stream.println(FlamePPMMaker.PPM_MAX);
+	}
 
-		return builder.build().compute(center, 500, 400, 50);
+	/**
+	 * Write a row of packed colors to a stream, as one line, every value
+	 * from 0 to 255 being rounded to the nearest one from 0 to
+	 * {@link #PPM_MAX}
+	 * 
+	 * @param pixels
+	 *                The packed colors
+	 * @param offset
+	 *                The index of the first pixel of the row
+	 * @param width
+	 *                The number of pixels of the row
+	 * @param stream
+	 *                The stream to write the row to
+	 */
+	private static void writeRow(final int[] pixels, final int offset, final int width, final PrintStream stream) {
+		// the line is built without copying it for every value
+		final StringBuilder line = new StringBuilder(width * 12);
+		for (int x = offset; x < offset + width; x++) {
+			final int rgb = pixels[x];
+			line.append(FlamePPMMaker.quantize(rgb >> 16 & 0xFF)).append(' ');
+			line.append(FlamePPMMaker.quantize(rgb >> 8 & 0xFF)).append(' ');
+			line.append(FlamePPMMaker.quantize(rgb & 0xFF)).append(' ');
+		}
+		stream.println(line);
 	}
 }
@@ -3,6 +3,7 @@ package ch.epfl.flamemaker.flame;
 import java.util.Arrays;
 
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Transformation;
 
@@ -73,7 +74,10 @@ public class FlameTransformation implements Transformation {
 		 */
 		public Builder(final FlameTransformation flameTransformation) {
 			this.affineTransformation = flameTransformation.affineTransformation;
-			this.variationWeight = flameTransformation.variationWeight;
+
+			// copy, else changing the builder would change the
+			// (immutable) FlameTransformation
+			this.variationWeight = flameTransformation.variationWeight.clone();
 		}
 
 		/**
@@ -139,6 +143,11 @@ public class FlameTransformation implements Transformation {
 			return this.variationWeight[index];
 		}
 
+		@Override
+		public int hashCode() {
+			return FlameTransformation.hash(this.affineTransformation, this.variationWeight);
+		}
+
 		/**
 		 * Set the AffineTransformation
 		 * 
@@ -168,11 +177,224 @@ public class FlameTransformation implements Transformation {
 		}
 	}
 
+	/**
+	 * Compiled form of a {@link FlameTransformation}, used in the chaos
+	 * game: the affine transformation is applied once for all the
+	 * variations, only the variations with a weight are kept in dense
+	 * arrays and the radius is computed once for every variation using it
+	 */
+	static final class Kernel {
+
+		/**
+		 * The AffineTransformation applied before the variations
+		 */
+		private final AffineTransformation	affineTransformation;
+
+		/**
+		 * The variables of the affine transformation in single
+		 * precision, in the order a, b, c, d, e, f
+		 */
+		private final float[]			coefficients;
+
+		/**
+		 * True if one of the variations needs the radius, and not only
+		 * its square (which is always computed)
+		 */
+		private final boolean			radius;
+
+		/**
+		 * The weight of every variation in variations, in single
+		 * precision
+		 */
+		private final float[]			singleWeights;
+
+		/**
+		 * The index of the variations with a weight
+		 */
+		private final int[]			variations;
+
+		/**
+		 * The weight of every variation in variations
+		 */
+		private final double[]			weights;
+
+		/**
+		 * Compile a {@link Kernel} with the given affine transformation
+		 * and the weight of every variation
+		 * 
+		 * @param affineTransformation
+		 *                The affine transformation used in every
+		 *                computation
+		 * @param variationWeight
+		 *                The weight for every variations
+		 */
+		private Kernel(final AffineTransformation affineTransformation, final double[] variationWeight) {
+			this.affineTransformation = affineTransformation;
+
+			int count = 0;
+			for (final double w : variationWeight) {
+				if (w != 0) {
+					count++;
+				}
+			}
+
+			this.variations = new int[count];
+			this.weights = new double[count];
+			this.singleWeights = new float[count];
+			boolean radius = false;
+			for (int i = 0, j = 0; i < variationWeight.length; i++) {
+				if (variationWeight[i] != 0) {
+					this.variations[j] = i;
+					this.weights[j] = variationWeight[i];
+					this.singleWeights[j] = (float) variationWeight[i];
+					radius |= Variation.needsRadius(i);
+					j++;
+				}
+			}
+			this.radius = radius;
+
+			// like the double path, a missing transformation only fails
+			// when a point is transformed
+			if (affineTransformation == null) {
+				this.coefficients = null;
+			} else {
+				final double[] coefficients = affineTransformation.coefficients();
+				this.coefficients = new float[coefficients.length];
+				for (int i = 0; i < coefficients.length; i++) {
+					this.coefficients[i] = (float) coefficients[i];
+				}
+			}
+		}
+
+		/**
+		 * Return the AffineTransformation applied before the variations
+		 * 
+		 * @return The AffineTransformation applied before the variations
+		 */
+		AffineTransformation affineTransformation() {
+			return this.affineTransformation;
+		}
+
+		/**
+		 * Transform the point (x, y) and write the result into the
+		 * given {@link MutablePoint}
+		 * 
+		 * @param x
+		 *                The x value of the point to transform
+		 * @param y
+		 *                The y value of the point to transform
+		 * @param result
+		 *                The {@link MutablePoint} to write the
+		 *                transformed point to
+		 */
+		void transformPoint(final double x, final double y, final MutablePoint result) {
+			final double affineX = this.affineTransformation.transformX(x, y);
+			final double affineY = this.affineTransformation.transformY(x, y);
+			final double r2 = affineX * affineX + affineY * affineY;
+			final double r = this.radius ? Math.sqrt(r2) : 0;
+
+			double sumX = 0, sumY = 0;
+			for (int i = 0; i < this.variations.length; i++) {
+				Variation.transformPoint(this.variations[i], affineX, affineY, r, r2, result);
+				sumX += result.x() * this.weights[i];
+				sumY += result.y() * this.weights[i];
+			}
+
+			result.set(sumX, sumY);
+		}
+
+		/**
+		 * Transform the point (x, y) in single precision and write the
+		 * result into the given {@link MutablePoint}
+		 * 
+		 * @param x
+		 *                The x value of the point to transform
+		 * @param y
+		 *                The y value of the point to transform
+		 * @param result
+		 *                The {@link MutablePoint} to write the
+		 *                transformed point to, whose values are floats
+		 */
+		void transformPoint(final float x, final float y, final MutablePoint result) {
+			final float[] m = this.coefficients;
+			final float affineX = x * m[0] + y * m[1] + m[2];
+			final float affineY = x * m[3] + y * m[4] + m[5];
+			final float r2 = affineX * affineX + affineY * affineY;
+			final float r = this.radius ? (float) Math.sqrt(r2) : 0;
+
+			float sumX = 0, sumY = 0;
+			for (int i = 0; i < this.variations.length; i++) {
+				Variation.transformPoint(this.variations[i], affineX, affineY, r, r2, result);
+				sumX += (float) result.x() * this.singleWeights[i];
+				sumY += (float) result.y() * this.singleWeights[i];
+			}
+
+			result.set(sumX, sumY);
+		}
+
+		/**
+		 * Transform the point (x, y) with the approximated
+		 * trigonometric functions and write the result into the given
+		 * {@link MutablePoint}
+		 * 
+		 * @param x
+		 *                The x value of the point to transform
+		 * @param y
+		 *                The y value of the point to transform
+		 * @param result
+		 *                The {@link MutablePoint} to write the
+		 *                transformed point to
+		 * 
+		 * @see Variation#transformPointFast(int, double, double, double,
+		 *      double, MutablePoint)
+		 */
+		void transformPointFast(final double x, final double y, final MutablePoint result) {
+			final double affineX = this.affineTransformation.transformX(x, y);
+			final double affineY = this.affineTransformation.transformY(x, y);
+			final double r2 = affineX * affineX + affineY * affineY;
+			final double r = this.radius ? Math.sqrt(r2) : 0;
+
+			double sumX = 0, sumY = 0;
+			for (int i = 0; i < this.variations.length; i++) {
+				Variation.transformPointFast(this.variations[i], affineX, affineY, r, r2, result);
+				sumX += result.x() * this.weights[i];
+				sumY += result.y() * this.weights[i];
+			}
+
+			result.set(sumX, sumY);
+		}
+
+		/**
+		 * Return the index of the variations with a weight, which must
+		 * not be changed
+		 * 
+		 * @return The index of the variations with a weight
+		 */
+		int[] variations() {
+			return this.variations;
+		}
+
+		/**
+		 * Return the weight of every variation in
+		 * {@link #variations()}, which must not be changed
+		 * 
+		 * @return The weight of every variation with a weight
+		 */
+		double[] weights() {
+			return this.weights;
+		}
+	}
+
 	/**
 	 * The AffineTransformation used in every transformPoint
 	 */
 	private final AffineTransformation	affineTransformation;
 
+	/**
+	 * The compiled form used in every transformPoint
+	 */
+	private final Kernel			kernel;
+
 	/**
 	 * The array of weight for every variations
 	 */
@@ -196,6 +418,22 @@ public class FlameTransformation implements Transformation {
 		}
 	}
 
+	/**
+	 * Return the hash code of a transformation, the same for a
+	 * {@link FlameTransformation} and its {@link Builder}
+	 * 
+	 * @param affineTransformation
+	 *                The affine transformation, possibly null
+	 * @param variationWeight
+	 *                The weight for every variations
+	 * 
+	 * @return The hash code of the transformation
+	 */
+	private static int hash(final AffineTransformation affineTransformation, final double[] variationWeight) {
+		final int hash = affineTransformation == null ? 0 : affineTransformation.hashCode();
+		return 31 * hash + Arrays.hashCode(variationWeight);
+	}
+
 	/**
 	 * Construct a new FlameTransformation with the given affine
 	 * transformation and the weight of every variation
@@ -217,22 +455,48 @@ public class FlameTransformation implements Transformation {
 		FlameTransformation.checkValue(variationWeight);
 
 		this.variationWeight = variationWeight.clone();
+		this.kernel = new Kernel(this.affineTransformation, this.variationWeight);
 	}
 
 	@Override
-	public Point transformPoint(Point p) {
-
-		final Point initial = new Point(p.x(), p.y());
-		Point sum = new Point(0, 0);
-		for (int i = 0; i < 6; i++) {
-			final double w = this.variationWeight[i];
-			if (w != 0) {
-				p = this.affineTransformation.transformPoint(initial);
-				p = Variation.ALL_VARIATIONS.get(i).transformPoint(p);
-				sum = new Point(sum.x() + p.x() * w, sum.y() + p.y() * w);
-			}
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || this.getClass() != obj.getClass()) {
+			return false;
 		}
+		final FlameTransformation other = (FlameTransformation) obj;
+		if (this.affineTransformation == null ? other.affineTransformation != null
+				: !this.affineTransformation.equals(other.affineTransformation)) {
+			return false;
+		}
+		return Arrays.equals(this.variationWeight, other.variationWeight);
+	}
+
+	@Override
+	public int hashCode() {
+		return FlameTransformation.hash(this.affineTransformation, this.variationWeight);
+	}
+
+	@Override
+	public Point transformPoint(final Point p) {
+		final MutablePoint result = new MutablePoint();
+		this.transformPoint(p.x(), p.y(), result);
+		return result.toPoint();
+	}
+
+	@Override
+	public void transformPoint(final double x, final double y, final MutablePoint result) {
+		this.kernel.transformPoint(x, y, result);
+	}
 
-		return sum;
+	/**
+	 * Return the {@link Kernel} compiled from this transformation
+	 * 
+	 * @return The {@link Kernel} compiled from this transformation
+	 */
+	Kernel kernel() {
+		return this.kernel;
 	}
 }
@@ -0,0 +1,51 @@
+package ch.epfl.flamemaker.flame;
+
+/**
+ * The precision of the floating-point numbers used to iterate the chaos game
+ * of a {@link Flame}
+ * <p>
+ * Only the iteration is concerned: the hits and the indexes of color are
+ * always accumulated as integers by the
+ * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}, thus exactly and
+ * whatever the order of the hits.
+ * </p>
+ * 
+ * @see Flame#withPrecision(Precision)
+ */
+public enum Precision {
+
+	/**
+	 * Iterate with doubles, the reference
+	 */
+	DOUBLE,
+
+	/**
+	 * Iterate with floats
+	 * <p>
+	 * With the same seed, the walkers draw the same transformations as with
+	 * doubles, and the transformations being contractions, the rounding
+	 * errors do not grow: on the Shark Fin and Turbulence fractals (500 x
+	 * 400, 10 million points, see {@link FlameBenchmark}) the colors differ
+	 * by less than 0.001 / 255 on average and the intensity of one pixel by
+	 * less than 0.03, when two double images of different seeds differ by
+	 * 1.5 to 3 / 255. Without vector instructions the speed is about the
+	 * same as with doubles, the transcendental functions being computed in
+	 * double precision in both cases.
+	 * </p>
+	 */
+	SINGLE,
+
+	/**
+	 * Iterate with doubles, but with the sine and the cosine of the
+	 * Sinusoidal and Swirl variations approximated by
+	 * {@link ch.epfl.flamemaker.extra.FastMath}
+	 * <p>
+	 * The absolute error of the approximations is below 2e-9, far below the
+	 * size of a pixel: on the Shark Fin and Turbulence fractals the images
+	 * are the same as with doubles. The approximations are about as fast as
+	 * the intrinsics of {@link Math} on a recent x86 JVM, thus the gain
+	 * depends on the platform.
+	 * </p>
+	 */
+	FAST;
+}
@@ -0,0 +1,510 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import ch.epfl.flamemaker.extra.FastRandom;
+import ch.epfl.flamemaker.extra.Preferences;
+import ch.epfl.flamemaker.extra.RenderPool;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
+
+/**
+ * A progressive computation of a {@link Flame} into a
+ * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+ * <p>
+ * The session keeps the state of every walker of the chaos game (its point,
+ * its color index and its generator) from one call of {@link #advance(long)} to
+ * the next one, thus the walkers are randomized only once, and many small
+ * calls hit the same points as one long call
+ * </p>
+ * <p>
+ * There are always {@link #STREAMS} walkers, seeded from the seed of the
+ * session and sharing the points to hit in a fixed way, whatever the number
+ * of threads walking them. As the accumulator sums integers, the same seed and
+ * the same number of points give exactly the same accumulator with 1 or 64
+ * threads.
+ * </p>
+ * <p>
+ * A walker whose point has escaped, e.g. after a division by zero of the
+ * Spherical variation, would never hit the image again (see
+ * {@link MutablePoint#escaped(double, double)}): it is reseeded at a random
+ * point of the square [-1, 1]² and warmed up again, the point which escaped
+ * not being hit. The reseeds are counted by {@link #reseeds()}, to detect the
+ * degenerate flames.
+ * </p>
+ */
+public final class RenderSession {
+
+	/**
+	 * One walker of the chaos game, computed by one task of the
+	 * {@link RenderPool}
+	 */
+	private final class Walker {
+
+		/**
+		 * The index of the color of the last point
+		 */
+		private double			color;
+
+		/**
+		 * The number of points hit so far
+		 */
+		private long			hits;
+
+		/**
+		 * The current point, transformed in place
+		 */
+		private final MutablePoint	point;
+
+		/**
+		 * The generator of the walker
+		 */
+		private final FastRandom	random;
+
+		/**
+		 * The number of times the walker was reseeded
+		 */
+		private long			reseeds;
+
+		/**
+		 * Construct a walker at the origin, randomized by the given
+		 * generator
+		 * 
+		 * @param random
+		 *                The generator of the walker
+		 */
+		Walker(final FastRandom random) {
+			this.random = random;
+			this.point = new MutablePoint();
+			this.color = 0;
+			this.reseeds = 0;
+
+			this.warmUp();
+		}
+
+		/**
+		 * Hit the given {@link FlameAccumulator.Sink} until the walker
+		 * has hit the given number of points since its creation
+		 * 
+		 * @param target
+		 *                The number of points the walker must have hit
+		 * @param sink
+		 *                The {@link FlameAccumulator.Sink} to hit
+		 */
+		void walk(final long target, final FlameAccumulator.Sink sink) {
+			final FlameKernel kernel = RenderSession.this.kernel;
+			final double[] colors = RenderSession.this.colors;
+			final FastRandom random = this.random;
+			final MutablePoint p = this.point;
+
+			// the index of the color is kept in a local variable during
+			// the walk, and saved for the next run
+			double color = this.color;
+
+			// Actually hit the accumulator
+			for (long j = this.hits; j < target; j++) {
+				final int i = random.nextInt(colors.length);
+				kernel.transformPoint(i, p.x(), p.y(), p);
+				color = (colors[i] + color) / 2.0;
+
+				if (MutablePoint.escaped(p.x(), p.y())) {
+					this.color = color;
+					this.reseed();
+					color = this.color;
+					continue;
+				}
+
+				sink.hit(p.x(), p.y(), color);
+			}
+
+			this.color = color;
+			this.hits = Math.max(this.hits, target);
+		}
+
+		/**
+		 * Move the point to a random point of the square [-1, 1]² and
+		 * warm it up again, keeping the index of the color
+		 */
+		private void reseed() {
+			this.reseeds++;
+			this.point.set(this.random.nextDouble() * 2 - 1, this.random.nextDouble() * 2 - 1);
+			this.warmUp();
+		}
+
+		/**
+		 * Transform the point by a random transformation and update
+		 * the index of the color
+		 */
+		private void step() {
+			final int i = this.random.nextInt(RenderSession.this.colors.length);
+			RenderSession.this.kernel.transformPoint(i, this.point.x(), this.point.y(), this.point);
+			this.color = (RenderSession.this.colors[i] + this.color) / 2.0;
+		}
+
+		/**
+		 * Randomize the point by {@link RenderSession#WARMUP} steps
+		 * without hitting it, so that it is on the attractor
+		 * <p>
+		 * If it escapes, it will be reseeded by the first step of the
+		 * walk, which bounds the cost of a degenerate flame
+		 * </p>
+		 */
+		private void warmUp() {
+			for (int j = 0; j < RenderSession.WARMUP; j++) {
+				this.step();
+			}
+		}
+	}
+
+	/**
+	 * The number of walkers of every session
+	 */
+	static final int			STREAMS	= 64;
+
+	/**
+	 * The number of steps of a walker before its first hit, and after
+	 * every reseed
+	 */
+	private static final int		WARMUP	= 20;
+
+	/**
+	 * True if the walkers of a thread are walked in lockstep, false if
+	 * they are walked one after the other
+	 */
+	private boolean				batched;
+
+	/**
+	 * The index of the color of every transformation
+	 */
+	private final double[]			colors;
+
+	/**
+	 * The {@link Flame} to compute
+	 */
+	private final Flame			flame;
+
+	/**
+	 * The {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder} to hit
+	 */
+	private final FlameAccumulator.Builder	image;
+
+	/**
+	 * The kernel of the {@link Flame}
+	 */
+	private final FlameKernel		kernel;
+
+	/**
+	 * The number of threads walking the walkers
+	 */
+	private final int			threads;
+
+	/**
+	 * The number of points asked so far
+	 */
+	private long				total;
+
+	/**
+	 * The walkers, always {@link #STREAMS} of them
+	 */
+	private final Walker[]			walkers;
+
+	/**
+	 * Construct a session computing the given {@link Flame} into the given
+	 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}, with
+	 * walkers seeded differently from any other session
+	 * 
+	 * @param flame
+	 *                The {@link Flame} to compute
+	 * @param image
+	 *                The
+	 *                {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+	 *                to hit
+	 */
+	public RenderSession(final Flame flame, final FlameAccumulator.Builder image) {
+		this(flame, image, new FastRandom().nextLong());
+	}
+
+	/**
+	 * Construct a session computing the given {@link Flame} into the given
+	 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}, with
+	 * walkers seeded by the given seed
+	 * 
+	 * @param flame
+	 *                The {@link Flame} to compute
+	 * @param image
+	 *                The
+	 *                {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+	 *                to hit
+	 * @param seed
+	 *                The seed of the generators of the walkers
+	 */
+	public RenderSession(final Flame flame, final FlameAccumulator.Builder image, final long seed) {
+		this(flame, image, seed, Preferences.values.threads);
+	}
+
+	/**
+	 * Construct a session computing the given {@link Flame} into the given
+	 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}, with
+	 * walkers seeded by the given seed and walked by the given number of
+	 * threads
+	 * 
+	 * @param flame
+	 *                The {@link Flame} to compute
+	 * @param image
+	 *                The
+	 *                {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+	 *                to hit
+	 * @param seed
+	 *                The seed of the generators of the walkers
+	 * @param threads
+	 *                The number of threads, which does not change the hit
+	 *                points
+	 * 
+	 * @throws IllegalArgumentException
+	 *                 if the number of threads is less than one
+	 */
+	public RenderSession(final Flame flame, final FlameAccumulator.Builder image, final long seed,
+			final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException();
+		}
+
+		this.flame = flame;
+		this.image = image;
+		this.kernel = flame.kernel();
+		this.colors = flame.colorIndexes();
+		this.threads = Math.min(threads, RenderSession.STREAMS);
+		this.total = 0;
+		this.batched = true;
+
+		// If we do not have list, there is nothing to walk
+		final int count = this.colors.length == 0 ? 0 : RenderSession.STREAMS;
+
+		// every walker has its own generator, to not share a seed, and
+		// the generators are split in the same order whatever the
+		// number of threads
+		final FastRandom random = new FastRandom(seed);
+		this.walkers = new Walker[count];
+		for (int i = 0; i < this.walkers.length; i++) {
+			this.walkers[i] = new Walker(random.split());
+		}
+	}
+
+	/**
+	 * Hit the given number of points, continuing the walk of the previous
+	 * calls
+	 * <p>
+	 * The points asked so far are shared between the walkers, the first
+	 * ones hitting one more point than the others if needed, thus the
+	 * walkers hit the same points whatever the way the total is asked.
+	 * Every thread hit its own private buffer, which are merged into the
+	 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder} when it is
+	 * built, thus the same
+	 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder} must not be
+	 * computed by two sessions at once
+	 * </p>
+	 * 
+	 * @param samples
+	 *                The number of points to hit
+	 * 
+	 * @throws IllegalArgumentException
+	 *                 if the number of points is negative
+	 */
+	public synchronized void advance(final long samples) {
+		if (samples < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.total += samples;
+		if (this.walkers.length == 0) {
+			return;
+		}
+
+		final long share = this.total / this.walkers.length;
+		final long remainder = this.total % this.walkers.length;
+
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+		for (int i = 0; i < this.threads; i++) {
+			final FlameAccumulator.Sink sink = this.image.sink(i, this.threads);
+			final int first = i;
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					final Walker[] walkers = RenderSession.this.walkers;
+					final int threads = RenderSession.this.threads;
+					final int lanes = (walkers.length - first + threads - 1) / threads;
+
+					final Walker[] batch = new Walker[lanes];
+					final long[] targets = new long[lanes];
+					for (int l = 0, w = first; l < lanes; l++, w += threads) {
+						batch[l] = walkers[w];
+						targets[l] = share + (w < remainder ? 1 : 0);
+					}
+
+					if (RenderSession.this.batched) {
+						RenderSession.this.walk(batch, targets, sink);
+					} else {
+						for (int l = 0; l < lanes; l++) {
+							batch[l].walk(targets[l], sink);
+						}
+					}
+				}
+			});
+		}
+
+		RenderPool.invokeAll(tasks);
+	}
+
+	/**
+	 * Return the {@link Flame} computed by the session
+	 * 
+	 * @return The {@link Flame} computed by the session
+	 */
+	public Flame flame() {
+		return this.flame;
+	}
+
+	/**
+	 * Return the {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+	 * hit by the session
+	 * 
+	 * @return The {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+	 *         hit by the session
+	 */
+	public FlameAccumulator.Builder image() {
+		return this.image;
+	}
+
+	/**
+	 * Return the number of times a walker was reseeded after its point
+	 * escaped, which is zero for most flames and grows with the number of
+	 * points for the degenerate ones
+	 * 
+	 * @return The number of times a walker was reseeded
+	 */
+	public synchronized long reseeds() {
+		long reseeds = 0;
+		for (final Walker walker : this.walkers) {
+			reseeds += walker.reseeds;
+		}
+		return reseeds;
+	}
+
+	/**
+	 * Return the number of points asked so far, e.g. to report the progress
+	 * of a long computation done by small calls of {@link #advance(long)}
+	 * 
+	 * @return The number of points asked so far
+	 */
+	public synchronized long total() {
+		return this.total;
+	}
+
+	/**
+	 * Choose whether the walkers of a thread are walked in lockstep (the
+	 * default) or one after the other, which hit exactly the same points
+	 * 
+	 * @param batched
+	 *                True to walk the walkers in lockstep
+	 */
+	synchronized void setBatched(final boolean batched) {
+		this.batched = batched;
+	}
+
+	/**
+	 * Walk the given walkers in lockstep until each one has hit its target
+	 * <p>
+	 * The state of the walkers is copied into arrays (x, y and color, one
+	 * lane per walker), and every step advances all the lanes before the
+	 * next one. The lanes do not depend on each other, so the processor
+	 * computes several of them at once instead of waiting for the result
+	 * of the previous step of a single walker. Each walker still uses its
+	 * own generator, so the same points are hit as with
+	 * {@link Walker#walk(long, ch.epfl.flamemaker.flame.FlameAccumulator.Sink)}
+	 * </p>
+	 * 
+	 * @param lanes
+	 *                The walkers to walk
+	 * @param targets
+	 *                The number of points every walker must have hit
+	 * @param sink
+	 *                The {@link FlameAccumulator.Sink} to hit
+	 */
+	private void walk(final Walker[] lanes, final long[] targets, final FlameAccumulator.Sink sink) {
+		final FlameKernel kernel = this.kernel;
+		final double[] colors = this.colors;
+		final int n = lanes.length;
+
+		final double[] x = new double[n], y = new double[n], color = new double[n];
+		final FastRandom[] random = new FastRandom[n];
+		long steps = Long.MAX_VALUE;
+		for (int l = 0; l < n; l++) {
+			x[l] = lanes[l].point.x();
+			y[l] = lanes[l].point.y();
+			color[l] = lanes[l].color;
+			random[l] = lanes[l].random;
+			steps = Math.min(steps, targets[l] - lanes[l].hits);
+		}
+
+		// the common part of the walk, in lockstep
+		final MutablePoint p = new MutablePoint();
+		final int[] index = new int[n], order = new int[n], start = new int[colors.length + 1];
+		for (long j = 0; j < steps; j++) {
+			Arrays.fill(start, 0);
+			for (int l = 0; l < n; l++) {
+				index[l] = random[l].nextInt(colors.length);
+				start[index[l] + 1]++;
+			}
+
+			// the lanes are sorted by transformation, so that the
+			// same transformation is used for several lanes in a row
+			for (int t = 0; t < colors.length; t++) {
+				start[t + 1] += start[t];
+			}
+			for (int l = 0; l < n; l++) {
+				order[start[index[l]]++] = l;
+			}
+
+			for (int k = 0; k < n; k++) {
+				final int l = order[k];
+				kernel.transformPoint(index[l], x[l], y[l], p);
+				x[l] = p.x();
+				y[l] = p.y();
+			}
+			boolean escaped = false;
+			for (int l = 0; l < n; l++) {
+				color[l] = (colors[index[l]] + color[l]) / 2.0;
+				escaped |= MutablePoint.escaped(x[l], y[l]);
+			}
+
+			if (!escaped) {
+				sink.hit(x, y, color, n);
+				continue;
+			}
+
+			for (int l = 0; l < n; l++) {
+				if (MutablePoint.escaped(x[l], y[l])) {
+					// reseeded by its walker, with its own generator
+					lanes[l].color = color[l];
+					lanes[l].reseed();
+					x[l] = lanes[l].point.x();
+					y[l] = lanes[l].point.y();
+					color[l] = lanes[l].color;
+				} else {
+					sink.hit(x[l], y[l], color[l]);
+				}
+			}
+		}
+
+		for (int l = 0; l < n; l++) {
+			lanes[l].point.set(x[l], y[l]);
+			lanes[l].color = color[l];
+			if (steps > 0) {
+				lanes[l].hits += steps;
+			}
+
+			// the few points left of the walkers with a greater target
+			lanes[l].walk(targets[l], sink);
+		}
+	}
+}
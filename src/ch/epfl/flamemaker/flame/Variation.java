@@ -3,74 +3,61 @@ package ch.epfl.flamemaker.flame;
 import java.util.Arrays;
 import java.util.List;
 
+import ch.epfl.flamemaker.extra.FastMath;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Transformation;
 
 /**
  * Class containing the six variations used by the flame fractals
+ * <p>
+ * Every variation is identified by its index, and the computation is done by
+ * a switch on it: the chaos game thus calls one single method, which the JIT
+ * is able to inline, rather than one of six subclasses
+ * </p>
  */
-public abstract class Variation implements Transformation {
+public final class Variation implements Transformation {
+
+	/**
+	 * The index of the Linear variation
+	 */
+	static final int			LINEAR		= 0;
+
+	/**
+	 * The index of the Sinusoidal variation
+	 */
+	static final int			SINUSOIDAL	= 1;
+
+	/**
+	 * The index of the Spherical variation
+	 */
+	static final int			SPHERICAL	= 2;
+
+	/**
+	 * The index of the Swirl variation
+	 */
+	static final int			SWIRL		= 3;
+
+	/**
+	 * The index of the Horseshoe variation
+	 */
+	static final int			HORSESHOE	= 4;
+
+	/**
+	 * The index of the Bubble variation
+	 */
+	static final int			BUBBLE		= 5;
 
 	/**
 	 * A list of all the variations
 	 */
-	public final static List<Variation>	ALL_VARIATIONS	= Arrays.asList(new Variation(Variation.total++,
-										"Linear") {
-									@Override
-									public Point transformPoint(final Point p) {
-										return p;
-									}
-								}, new Variation(Variation.total++, "Sinusoidal") {
-									@Override
-									public Point transformPoint(final Point p) {
-										final double x = Math.sin(p.x());
-										final double y = Math.sin(p.y());
-										return new Point(x, y);
-									}
-								}, new Variation(Variation.total++, "Spherical") {
-									@Override
-									public Point transformPoint(final Point p) {
-										final double x = p.x()
-												/ Math.pow(p.r(), 2);
-										final double y = p.y()
-												/ Math.pow(p.r(), 2);
-										return new Point(x, y);
-									}
-								}, new Variation(Variation.total++, "Swirl") {
-									@Override
-									public Point transformPoint(final Point p) {
-										final double r = Math.pow(p.r(), 2);
-										final double x = p.x() * Math.sin(r)
-												- p.y() * Math.cos(r);
-										final double y = p.x() * Math.cos(r)
-												+ p.y() * Math.sin(r);
-										return new Point(x, y);
-									}
-								}, new Variation(Variation.total++, "Horseshoe") {
-									@Override
-									public Point transformPoint(final Point p) {
-										final double x = (p.x() - p.y())
-												* (p.x() + p.y())
-												/ p.r();
-										final double y = 2 * p.x() * p.y()
-												/ p.r();
-										return new Point(x, y);
-									}
-								}, new Variation(Variation.total++, "Bubble") {
-									@Override
-									public Point transformPoint(final Point p) {
-										final double r = Math.pow(p.r(), 2) + 4;
-										final double x = 4 * p.x() / (r);
-										final double y = 4 * p.y() / (r);
-										return new Point(x, y);
-									}
-								});
-
-	/**
-	 * The actual index of the Variation, to compute the needed index by
-	 * {@link Variation}
-	 */
-	private static int			total		= 0;
+	public final static List<Variation>	ALL_VARIATIONS	= Arrays.asList(new Variation(Variation.LINEAR,
+										"Linear"), new Variation(Variation.SINUSOIDAL,
+										"Sinusoidal"), new Variation(Variation.SPHERICAL,
+										"Spherical"), new Variation(Variation.SWIRL, "Swirl"),
+										new Variation(Variation.HORSESHOE, "Horseshoe"),
+										new Variation(Variation.BUBBLE, "Bubble"));
+
 	/**
 	 * The index of the variation
 	 */
@@ -80,6 +67,177 @@ public abstract class Variation implements Transformation {
 	 */
 	private final String			name;
 
+	/**
+	 * Return true if the variation with the given index needs the radius
+	 * r, and not only its square r2, given to
+	 * {@link #transformPoint(int, double, double, double, double, MutablePoint)}
+	 * 
+	 * @param index
+	 *                The index of the variation
+	 * 
+	 * @return True if the variation needs the radius
+	 */
+	static boolean needsRadius(final int index) {
+		return index == Variation.HORSESHOE;
+	}
+
+	/**
+	 * Transform the point (x, y) by the variation with the given index,
+	 * with the radius computed once by the caller for every variation
+	 * 
+	 * @param index
+	 *                The index of the variation
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * @param r
+	 *                The radius of the point, only needed if
+	 *                {@link #needsRadius(int)}
+	 * @param r2
+	 *                The square of the radius of the point
+	 * @param result
+	 *                The {@link MutablePoint} to write the transformed
+	 *                point to
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if the index is not the one of a variation
+	 */
+	static void transformPoint(final int index, final double x, final double y, final double r,
+			final double r2, final MutablePoint result) {
+		switch (index) {
+
+		case LINEAR:
+			result.set(x, y);
+			break;
+
+		case SINUSOIDAL:
+			result.set(Math.sin(x), Math.sin(y));
+			break;
+
+		case SPHERICAL:
+			result.set(x / r2, y / r2);
+			break;
+
+		case SWIRL:
+			final double sin = Math.sin(r2), cos = Math.cos(r2);
+			result.set(x * sin - y * cos, x * cos + y * sin);
+			break;
+
+		case HORSESHOE:
+			result.set((x - y) * (x + y) / r, 2 * x * y / r);
+			break;
+
+		case BUBBLE:
+			final double d = r2 + 4;
+			result.set(4 * x / d, 4 * y / d);
+			break;
+
+		default:
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	/**
+	 * Transform the point (x, y) by the variation with the given index in
+	 * single precision, with the radius computed once by the caller for
+	 * every variation
+	 * 
+	 * @param index
+	 *                The index of the variation
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * @param r
+	 *                The radius of the point, only needed if
+	 *                {@link #needsRadius(int)}
+	 * @param r2
+	 *                The square of the radius of the point
+	 * @param result
+	 *                The {@link MutablePoint} to write the transformed
+	 *                point to, whose values are floats
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if the index is not the one of a variation
+	 */
+	static void transformPoint(final int index, final float x, final float y, final float r, final float r2,
+			final MutablePoint result) {
+		switch (index) {
+
+		case LINEAR:
+			result.set(x, y);
+			break;
+
+		case SINUSOIDAL:
+			result.set((float) Math.sin(x), (float) Math.sin(y));
+			break;
+
+		case SPHERICAL:
+			result.set(x / r2, y / r2);
+			break;
+
+		case SWIRL:
+			final float sin = (float) Math.sin(r2), cos = (float) Math.cos(r2);
+			result.set(x * sin - y * cos, x * cos + y * sin);
+			break;
+
+		case HORSESHOE:
+			result.set((x - y) * (x + y) / r, 2 * x * y / r);
+			break;
+
+		case BUBBLE:
+			final float d = r2 + 4;
+			result.set(4 * x / d, 4 * y / d);
+			break;
+
+		default:
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	/**
+	 * Transform the point (x, y) by the variation with the given index,
+	 * with the trigonometric functions of the Sinusoidal and Swirl
+	 * variations approximated by {@link FastMath}
+	 * 
+	 * @param index
+	 *                The index of the variation
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * @param r
+	 *                The radius of the point, only needed if
+	 *                {@link #needsRadius(int)}
+	 * @param r2
+	 *                The square of the radius of the point
+	 * @param result
+	 *                The {@link MutablePoint} to write the transformed
+	 *                point to
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *                 if the index is not the one of a variation
+	 */
+	static void transformPointFast(final int index, final double x, final double y, final double r,
+			final double r2, final MutablePoint result) {
+		switch (index) {
+
+		case SINUSOIDAL:
+			result.set(FastMath.sin(x), FastMath.sin(y));
+			break;
+
+		case SWIRL:
+			final double sin = FastMath.sin(r2), cos = FastMath.cos(r2);
+			result.set(x * sin - y * cos, x * cos + y * sin);
+			break;
+
+		default:
+			Variation.transformPoint(index, x, y, r, r2, result);
+			break;
+		}
+	}
+
 	/**
 	 * Construct a Variation with the given name and index
 	 * 
@@ -112,5 +270,19 @@ public abstract class Variation implements Transformation {
 	}
 
 	@Override
-	abstract public Point transformPoint(Point p);
+	public Point transformPoint(final Point p) {
+		if (this.index == Variation.LINEAR) {
+			return p;
+		}
+
+		final MutablePoint result = new MutablePoint();
+		this.transformPoint(p.x(), p.y(), result);
+		return result.toPoint();
+	}
+
+	@Override
+	public void transformPoint(final double x, final double y, final MutablePoint result) {
+		final double r2 = x * x + y * y;
+		Variation.transformPoint(this.index, x, y, Math.sqrt(r2), r2, result);
+	}
 }
@@ -144,6 +144,16 @@ public final class AffineTransformation implements Transformation {
 		this.f = f;
 	}
 
+	/**
+	 * Return the six variables of the matrix, in the order a, b, c, d, e,
+	 * f
+	 * 
+	 * @return A new array containing the variables of the matrix
+	 */
+	public double[] coefficients() {
+		return new double[] { this.a, this.b, this.c, this.d, this.e, this.f };
+	}
+
 	/**
 	 * Gives us a matrix that represents the compounded function of two
 	 * transformation
@@ -183,6 +193,17 @@ public final class AffineTransformation implements Transformation {
 		return true;
 	}
 
+	@Override
+	public int hashCode() {
+		// 0 is added to hash -0 as 0, the two being equal for equals
+		int hash = Double.hashCode(this.a + 0.0);
+		hash = 31 * hash + Double.hashCode(this.b + 0.0);
+		hash = 31 * hash + Double.hashCode(this.c + 0.0);
+		hash = 31 * hash + Double.hashCode(this.d + 0.0);
+		hash = 31 * hash + Double.hashCode(this.e + 0.0);
+		return 31 * hash + Double.hashCode(this.f + 0.0);
+	}
+
 	@Override
 	public String toString() {
 		return "((" + this.a + "," + this.b + "," + this.c + "),(" + this.d + "," + this.e + "," + this.f
@@ -197,6 +218,41 @@ public final class AffineTransformation implements Transformation {
 		return new Point(newX, newY);
 	}
 
+	@Override
+	public void transformPoint(final double x, final double y, final MutablePoint result) {
+		result.set(this.transformX(x, y), this.transformY(x, y));
+	}
+
+	/**
+	 * Return the x value of the point (x, y) once transformed, without
+	 * creating any object
+	 * 
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * 
+	 * @return The x value of the transformed point
+	 */
+	public double transformX(final double x, final double y) {
+		return x * this.a + y * this.b + this.c;
+	}
+
+	/**
+	 * Return the y value of the point (x, y) once transformed, without
+	 * creating any object
+	 * 
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * 
+	 * @return The y value of the transformed point
+	 */
+	public double transformY(final double x, final double y) {
+		return x * this.d + y * this.e + this.f;
+	}
+
 	/**
 	 * Returns the horizontal component of the translation
 	 * 
@@ -0,0 +1,118 @@
+package ch.epfl.flamemaker.geometry2d;
+
+/**
+ * Represent a point which can be changed, used to transform points without
+ * creating a new {@link Point} every time
+ * <p>
+ * It should be owned by the caller of the transformation, who reuse it for
+ * every iteration
+ * </p>
+ */
+public final class MutablePoint {
+
+	/**
+	 * The absolute value of a coordinate beyond which a point of the chaos
+	 * game has escaped: far enough to never come back into a frame in a few
+	 * steps, near enough for the square of the radius to stay finite
+	 */
+	public static final double	ESCAPE	= 1e20;
+
+	/**
+	 * The x value
+	 */
+	private double			x;
+
+	/**
+	 * The y value
+	 */
+	private double			y;
+
+	/**
+	 * Return true if the point (x, y) has escaped, i.e. if one of its
+	 * values is not finite (after a division by zero) or beyond
+	 * {@link #ESCAPE}, thus it would never hit a frame again
+	 * 
+	 * @param x
+	 *                The x value
+	 * @param y
+	 *                The y value
+	 * 
+	 * @return True if the point has escaped
+	 */
+	public static boolean escaped(final double x, final double y) {
+		// also true for NaN, which fails every comparison
+		return !(Math.abs(x) < MutablePoint.ESCAPE && Math.abs(y) < MutablePoint.ESCAPE);
+	}
+
+	/**
+	 * Construct a new point at the origin, i.e (0,0)
+	 */
+	public MutablePoint() {
+		this(0, 0);
+	}
+
+	/**
+	 * Construct a new point with the given values
+	 * 
+	 * @param x
+	 *                The x value
+	 * 
+	 * @param y
+	 *                The y value
+	 */
+	public MutablePoint(final double x, final double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Set the values of the point
+	 * 
+	 * @param x
+	 *                The new x value
+	 * 
+	 * @param y
+	 *                The new y value
+	 */
+	public void set(final double x, final double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Return a {@link Point} with the actual values
+	 * 
+	 * @return A {@link Point} with the actual values
+	 */
+	public Point toPoint() {
+		return new Point(this.x, this.y);
+	}
+
+	/**
+	 * Return a textual representation of our point
+	 * 
+	 * @return A textual representation of our point of the form "(x, y)"
+	 */
+	@Override
+	public String toString() {
+		return "(" + this.x + "," + this.y + ")";
+	}
+
+	/**
+	 * Return the x value
+	 * 
+	 * @return The x value
+	 */
+	public double x() {
+		return this.x;
+	}
+
+	/**
+	 * Return the y value
+	 * 
+	 * @return The y value
+	 */
+	public double y() {
+		return this.y;
+	}
+}
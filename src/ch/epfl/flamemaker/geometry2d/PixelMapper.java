@@ -0,0 +1,122 @@
+package ch.epfl.flamemaker.geometry2d;
+
+/**
+ * Map the points of a {@link Rectangle} to the pixels of an image of the given
+ * definition, the pixel (x, y) having the index y * width + x (row after row,
+ * the bottom one first)
+ * <p>
+ * The mapping is precomputed as a scale and an offset per axis, thus a point
+ * is mapped with one multiply-add and one unsigned comparison per axis, without
+ * creating any object. The offsets are biased by {@link #BIAS}, so that the
+ * truncation of a point slightly at the left of (or below) the rectangle, or
+ * of NaN, gives a negative value rather than 0.
+ * </p>
+ */
+public final class PixelMapper {
+
+	/**
+	 * The bias added to the coordinates of the pixels before the
+	 * truncation, greater than any definition
+	 */
+	private static final int	BIAS	= 1 << 20;
+
+	/**
+	 * The height of the image, in pixels
+	 */
+	private final int		height;
+
+	/**
+	 * The offset of the x value of a pixel, including the bias
+	 */
+	private final double		offsetX;
+
+	/**
+	 * The offset of the y value of a pixel, including the bias
+	 */
+	private final double		offsetY;
+
+	/**
+	 * The number of pixels per unit on the x-axis
+	 */
+	private final double		scaleX;
+
+	/**
+	 * The number of pixels per unit on the y-axis
+	 */
+	private final double		scaleY;
+
+	/**
+	 * The width of the image, in pixels
+	 */
+	private final int		width;
+
+	/**
+	 * Construct a mapper of the points of the given {@link Rectangle} to
+	 * an image of the given definition
+	 * 
+	 * @param frame
+	 *                The {@link Rectangle} covered by the image
+	 * @param width
+	 *                The width of the image, in pixels
+	 * @param height
+	 *                The height of the image, in pixels
+	 * 
+	 * @throws IllegalArgumentException
+	 *                 if the width or the height is not between 1 and
+	 *                 {@link #BIAS}, or if the image has more than
+	 *                 {@link Integer#MAX_VALUE} pixels
+	 */
+	public PixelMapper(final Rectangle frame, final int width, final int height) {
+		if (width <= 0 || height <= 0 || width > PixelMapper.BIAS || height > PixelMapper.BIAS
+				|| (long) width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException();
+		}
+
+		this.width = width;
+		this.height = height;
+		this.scaleX = width / frame.width();
+		this.scaleY = height / frame.height();
+		this.offsetX = PixelMapper.BIAS - frame.left() * this.scaleX;
+		this.offsetY = PixelMapper.BIAS - frame.bottom() * this.scaleY;
+	}
+
+	/**
+	 * Return the height of the image
+	 * 
+	 * @return The height of the image, in pixels
+	 */
+	public int height() {
+		return this.height;
+	}
+
+	/**
+	 * Return the index of the pixel containing the point (x, y), or -1 if
+	 * the point is not in the image
+	 * 
+	 * @param x
+	 *                The x value of the point
+	 * @param y
+	 *                The y value of the point
+	 * 
+	 * @return The index of the pixel, y * width + x, or -1
+	 */
+	public int index(final double x, final double y) {
+		final int px = (int) (x * this.scaleX + this.offsetX) - PixelMapper.BIAS;
+		final int py = (int) (y * this.scaleY + this.offsetY) - PixelMapper.BIAS;
+
+		// a negative value is a huge unsigned one
+		if (Integer.compareUnsigned(px, this.width) >= 0 || Integer.compareUnsigned(py, this.height) >= 0) {
+			return -1;
+		}
+		return py * this.width + px;
+	}
+
+	/**
+	 * Return the width of the image
+	 * 
+	 * @return The width of the image, in pixels
+	 */
+	public int width() {
+		return this.width;
+	}
+}
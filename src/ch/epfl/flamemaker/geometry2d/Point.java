@@ -40,7 +40,7 @@ public final class Point {
 	 * @return The length of the vector from the origin to the point (x, y)
 	 */
 	public double r() {
-		return Math.sqrt(Math.pow(this.x, 2.0) + Math.pow(this.y, 2.0));
+		return Math.sqrt(this.x * this.x + this.y * this.y);
 	}
 
 	/**
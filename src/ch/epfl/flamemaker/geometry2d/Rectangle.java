@@ -84,7 +84,21 @@ public final class Rectangle {
 	 * @return True if the given point is in the rectangle
 	 */
 	public boolean contains(final Point p) {
-		return (p.x() >= this.left() && p.x() < this.right() && p.y() >= this.bottom() && p.y() < this.top());
+		return this.contains(p.x(), p.y());
+	}
+
+	/**
+	 * Return true if the point (x, y) is in the rectangle
+	 * 
+	 * @param x
+	 *                The x value of the point to check
+	 * @param y
+	 *                The y value of the point to check
+	 * 
+	 * @return True if the point (x, y) is in the rectangle
+	 */
+	public boolean contains(final double x, final double y) {
+		return (x >= this.left() && x < this.right() && y >= this.bottom() && y < this.top());
 	}
 
 	/**
@@ -11,4 +11,18 @@ public interface Transformation {
 	 * @return A new point that is p transformed
 	 */
 	Point transformPoint(Point p);
+
+	/**
+	 * Transform the point (x, y) without creating any object, the result
+	 * is written into the given {@link MutablePoint}
+	 * 
+	 * @param x
+	 *                The x value of the point to transform
+	 * @param y
+	 *                The y value of the point to transform
+	 * @param result
+	 *                The {@link MutablePoint} to write the transformed
+	 *                point to, which may be the one containing x and y
+	 */
+	void transformPoint(double x, double y, MutablePoint result);
 }
@@ -13,8 +13,9 @@ import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.geom.Line2D;
-import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
@@ -24,8 +25,6 @@ import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
@@ -52,8 +51,8 @@ import javax.swing.KeyStroke;
 import javax.swing.LayoutStyle.ComponentPlacement;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
-import javax.swing.Timer;
 import javax.swing.border.Border;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -61,12 +60,14 @@ import javax.swing.filechooser.FileFilter;
 
 import ch.epfl.flamemaker.color.Color;
 import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.RandomPalette;
 import ch.epfl.flamemaker.extra.Preferences;
 import ch.epfl.flamemaker.flame.Flame;
 import ch.epfl.flamemaker.flame.FlameAccumulator;
 import ch.epfl.flamemaker.flame.FlamePPMMaker;
 import ch.epfl.flamemaker.flame.FlameTransformation;
 import ch.epfl.flamemaker.flame.FlameTransformation.Builder;
+import ch.epfl.flamemaker.flame.RenderSession;
 import ch.epfl.flamemaker.flame.Variation;
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
 import ch.epfl.flamemaker.geometry2d.Point;
@@ -288,61 +289,6 @@ public class FlameMakerGUI {
 	@SuppressWarnings("serial")
 	private static class FlameBuilderPreviewComponent extends JComponent implements Observer {
 
-		/**
-		 * Represent a really simple chronometer, you can start it, stop
-		 * it and know the time it took.
-		 */
-		private static class Chrono {
-			/**
-			 * The time of start
-			 */
-			private long	begin;
-			/**
-			 * The time of end
-			 */
-			private long	end;
-
-			/**
-			 * Construct a {@link Chrono} with the fields as zero
-			 */
-			public Chrono() {
-				this.begin = 0;
-				this.end = 0;
-			}
-
-			/**
-			 * Start the {@link Chrono}
-			 */
-			public void start() {
-				this.begin = System.currentTimeMillis();
-			}
-
-			/**
-			 * Stop the {@link Chrono}
-			 */
-			public void stop() {
-				this.end = System.currentTimeMillis();
-			}
-
-			/**
-			 * Return the time measured by the {@link Chrono}
-			 * 
-			 * @return The time measured by the {@link Chrono}
-			 */
-			public long time() {
-				return this.end - this.begin;
-			}
-		}
-
-		/**
-		 * The {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
-		 * use in computation
-		 */
-		private FlameAccumulator.Builder	accuBuilder;
-		/**
-		 * The background {@link Color}
-		 */
-		private final Color			background;
 		/**
 		 * The {@link Builder} used to get the needed
 		 * {@link AffineTransformation}
@@ -350,47 +296,33 @@ public class FlameMakerGUI {
 		private final ObservableFlameBuilder	builder;
 
 		/**
-		 * The builder we use to compute, used to know if we have
-		 * something new
-		 */
-		private ObservableFlameBuilder		computedBuilder;
-		/**
-		 * The density of the computation
+		 * The {@link Flame} asked to the renderer, used to know if we
+		 * have something new, null if nothing was asked
 		 */
-		private final int			density;
+		private Flame				computed;
 
 		/**
 		 * The scope of the fractal, used to have the same aspect ratio
 		 * as the {@link FlameBuilderPreviewComponent}
 		 */
 		private final Rectangle			frame;
-		/**
-		 * A {@link Logger} used to warn of too high refresh rate
-		 */
-		private final Logger			logger;
-		/**
-		 * The {@link Palette} used to compute
-		 */
-		private final Palette			palette;
 
 		/**
-		 * The refresh time
+		 * True if the changes of the builder are already going to be
+		 * rendered by a task queued on the Swing thread
 		 */
-		private int				refresh;
+		private boolean				pending;
 
 		/**
-		 * The number of points computed every time
+		 * The {@link PreviewRenderer} computing the fractal in the
+		 * background, repainting the component after every image
 		 */
-		private int				step;
-		/**
-		 * The {@link Timer} used to refresh the GUI
-		 */
-		private Timer				timer;
+		private final PreviewRenderer		renderer;
 
 		/**
-		 * The number of so-far computed points
+		 * The size asked to the renderer, null if nothing was asked
 		 */
-		private int				totalDensity;
+		private Dimension			size;
 
 		/**
 		 * Construct a new {@link FlameBuilderPreviewComponent} with the
@@ -413,114 +345,96 @@ public class FlameMakerGUI {
 		private FlameBuilderPreviewComponent(final ObservableFlameBuilder builder, final Color background,
 				final Palette palette, final Rectangle frame, final int density) {
 			this.builder = builder;
-			this.background = background;
-			this.palette = palette;
 			this.frame = frame;
-			this.density = density;
-			this.refresh = Preferences.values.refresh;
-			// Use a low value just to have something to test
-			this.step = 1000;
-			this.logger = Logger.getLogger(FlameBuilderPreviewComponent.class.getName());
-
-			this.builder.addObserver(this);
-			this.computedBuilder = new ObservableFlameBuilder(this.builder);
-		}
-
-		@Override
-		public void changedBuilder() {
+			this.renderer = new PreviewRenderer(background, palette, density, new Runnable() {
 
-			if (!this.builder.equals(this.computedBuilder)) {
-				this.computedBuilder = new ObservableFlameBuilder(this.builder);
-				this.timer.stop();
-				this.repaint();
-			}
+				@Override
+				public void run() {
+					FlameBuilderPreviewComponent.this.repaint();
+				}
+			});
 		}
 
 		@Override
-		public Dimension getPreferredSize() {
-			return new Dimension(200, 100);
+		public void addNotify() {
+			super.addNotify();
+			// the builder is observed only while the component is
+			// shown, so that a closed window can be collected
+			this.builder.addObserver(this);
 		}
 
 		@Override
-		protected void paintComponent(final Graphics g) {
-
-			final int width = this.getWidth(), height = this.getHeight();
-
-			if (this.timer != null && this.accuBuilder != null) {
-				final FlameAccumulator build = this.accuBuilder.build();
-				if ((build.width() != this.getWidth() || build.height() != this.getHeight())) {
-					this.timer.stop();
-				}
+		public void changedBuilder() {
+			// a burst of changes (e.g. a whole new fractal, or the
+			// events of a drag already queued) is rendered only once,
+			// after them
+			if (this.pending) {
+				return;
 			}
 
-			if (this.timer == null || !this.timer.isRunning()) {
-				final Rectangle actualFrame = this.frame.expandToAspectRatio(width / (double) height);
-				this.accuBuilder = new FlameAccumulator.Builder(actualFrame, width, height);
+			this.pending = true;
+			SwingUtilities.invokeLater(new Runnable() {
 
-				this.paintAccuBuilder(g);
-
-				this.totalDensity = 0;
-				this.step = 1000;
-				this.timer = new Timer(Preferences.values.refresh, new ActionListener() {
-
-					@Override
-					public void actionPerformed(@SuppressWarnings("unused") final ActionEvent e) {
-						FlameBuilderPreviewComponent.this.repaint();
+				@Override
+				public void run() {
+					final FlameBuilderPreviewComponent preview = FlameBuilderPreviewComponent.this;
+					preview.pending = false;
+					// the flame is built once per change, and compared
+					// by its hash code first
+					if (!preview.builder.build().equals(preview.computed)) {
+						preview.render();
 					}
-				});
-				this.timer.start();
-
-			} else if (this.totalDensity < this.density * width * height) {
-				this.totalDensity += this.step;
-				final Chrono clock = new Chrono();
-				clock.start();
-				this.builder.build().compute(this.step, this.accuBuilder);
-				this.paintAccuBuilder(g);
-				this.paintLoading(g, (double) this.totalDensity / (this.density * width * height));
-				clock.stop();
-
-				// Accurate the step
-				this.step *= (this.refresh / (double) clock.time());
-				if ((this.refresh / (double) clock.time()) < 1
-						&& this.step < Preferences.values.threshold) {
-
-					this.logger.log(Level.WARNING,
-							"Your time setting (the refresh rate) is too low, and thus, we can't keep up. We're adjusting it for now, but consider adding an higher value to the preferences.");
-					this.refresh += 100;
-					this.step = 1000;
 				}
+			});
+		}
 
-			} else {
-				this.timer.stop();
-				this.paintAccuBuilder(g);
-			}
+		@Override
+		public Dimension getPreferredSize() {
+			return new Dimension(200, 100);
 		}
 
 		/**
-		 * Paint the actual state of the
-		 * {@link ch.epfl.flamemaker.flame.FlameAccumulator.Builder}
+		 * Color the fractal with the given colors, without computing
+		 * it again
 		 * 
-		 * @param g
-		 *                The {@link Graphics} to draw to
+		 * @param palette
+		 *                The new {@link Palette}
+		 * @param background
+		 *                The new {@link Color} of the background
 		 */
-		private void paintAccuBuilder(final Graphics g) {
+		public void recolor(final Palette palette, final Color background) {
+			this.renderer.recolor(palette, background);
+		}
 
-			if (this.accuBuilder == null) {
-				return;
+		@Override
+		public void removeNotify() {
+			// the component is not shown anymore, e.g. the full screen
+			// window was closed: the renderer is started again by the
+			// next paint if it is shown again
+			this.builder.removeObserver(this);
+			this.renderer.stop();
+			this.size = null;
+			super.removeNotify();
+		}
+
+		@Override
+		protected void paintComponent(final Graphics g) {
+			if (!this.getSize().equals(this.size)) {
+				this.render();
 			}
 
-			final FlameAccumulator accu = this.accuBuilder.build();
-			final BufferedImage image = new BufferedImage(accu.width(), accu.height(),
-					BufferedImage.TYPE_INT_RGB);
+			final PreviewRenderer.Snapshot snapshot = this.renderer.latest();
+			if (snapshot == null) {
+				return;
+			}
 
-			for (int x = 0; x < accu.width(); x++) {
-				for (int y = 0; y < accu.height(); y++) {
-					final Color c = accu.color(this.palette, this.background, x, y);
-					final int RGB = c.asPackedRGB();
-					image.setRGB(x, accu.height() - 1 - y, RGB);
-				}
+			// the renderer colors the image again two snapshots later
+			synchronized (snapshot.image()) {
+				g.drawImage(snapshot.image(), 0, 0, null);
+			}
+			if (snapshot.progress() < 1) {
+				this.paintLoading(g, snapshot.progress());
 			}
-			g.drawImage(image, 0, 0, null);
 		}
 
 		/**
@@ -535,6 +449,23 @@ public class FlameMakerGUI {
 			g.setColor(new java.awt.Color(0xFF)); // blue
 			g.fillRect(0, this.getHeight() - 3, (int) (value * this.getWidth()), 3);
 		}
+
+		/**
+		 * Ask the renderer to compute the actual state of the builder, at
+		 * the actual size of the component
+		 */
+		private void render() {
+			if (!this.isDisplayable()) {
+				// a change queued before the component was removed
+				return;
+			}
+
+			this.size = this.getSize();
+			this.computed = this.builder.build();
+			if (this.size.width > 0 && this.size.height > 0) {
+				this.renderer.render(this.computed, this.frame, this.size.width, this.size.height);
+			}
+		}
 	}
 
 	/**
@@ -574,7 +505,11 @@ public class FlameMakerGUI {
 			/**
 			 * Put the fractal in full screen
 			 */
-			FULLSCREEN(Menus.VIEW, 0, "Plein écran", KeyEvent.VK_F, 0);
+			FULLSCREEN(Menus.VIEW, 0, "Plein écran", KeyEvent.VK_F, 0),
+			/**
+			 * Color the fractal with a new random palette
+			 */
+			RANDOM_PALETTE(Menus.VIEW, 1, "Palette aléatoire", KeyEvent.VK_P, 0);
 
 			/**
 			 * The key to react to
@@ -773,10 +708,16 @@ public class FlameMakerGUI {
 		}
 	}
 
+	/**
+	 * The number of steps of the computation of a saved image, each one
+	 * hitting the same share of the points
+	 */
+	private static final int		SAVE_STEPS	= 1000;
+
 	/**
 	 * The {@link Color} of the background we use to build the image
 	 */
-	private final Color			background;
+	private Color				background;
 
 	/**
 	 * The {@link Builder} we are currently working on
@@ -793,6 +734,18 @@ public class FlameMakerGUI {
 	 */
 	private final int			density;
 
+	/**
+	 * The accumulator of the last image saved, colored again if only the
+	 * colors changed when the next one is saved, dropped when the fractal
+	 * changes
+	 */
+	private FlameAccumulator		exported;
+
+	/**
+	 * The {@link Flame} of the last image saved
+	 */
+	private Flame				exportedFlame;
+
 	/**
 	 * The scope of the fractal
 	 */
@@ -807,7 +760,12 @@ public class FlameMakerGUI {
 	/**
 	 * The {@link Palette} we use to build the image
 	 */
-	private final Palette			palette;
+	private Palette				palette;
+
+	/**
+	 * The previews of the fractal, colored again when the colors change
+	 */
+	private final Set<FlameBuilderPreviewComponent>	previews;
 
 	/**
 	 * The {@link FlameTransformation} actually selected in the list of
@@ -876,6 +834,20 @@ public class FlameMakerGUI {
 
 		this.selectedTransformationIndex = 0;
 		this.observers = new HashSet<SelectionObserver>();
+		this.previews = new HashSet<FlameBuilderPreviewComponent>();
+
+		this.builder.addObserver(new Observer() {
+
+			@Override
+			public void changedBuilder() {
+				// the accumulator of the last image cannot be colored
+				// again anymore, it is not kept in memory
+				synchronized (FlameMakerGUI.this) {
+					FlameMakerGUI.this.exported = null;
+					FlameMakerGUI.this.exportedFlame = null;
+				}
+			}
+		});
 	}
 
 	/**
@@ -909,6 +881,25 @@ public class FlameMakerGUI {
 		this.observers.remove(observer);
 	}
 
+	/**
+	 * Change the colors of the fractal: the previews and the next image
+	 * saved are only colored again, without computing the fractal again
+	 * 
+	 * @param palette
+	 *                The new {@link Palette}
+	 * @param background
+	 *                The new {@link Color} of the background
+	 */
+	public void setColors(final Palette palette, final Color background) {
+		synchronized (this) {
+			this.palette = palette;
+			this.background = background;
+		}
+		for (final FlameBuilderPreviewComponent preview : this.previews) {
+			preview.recolor(palette, background);
+		}
+	}
+
 	/**
 	 * Select a new {@link Transformation}
 	 * 
@@ -952,20 +943,28 @@ public class FlameMakerGUI {
 
 		class Compute extends SwingWorker<Void, Void> {
 
-			private final File	file;
-			private final JFrame	window;
+			private final Color			background;
+			private final File			file;
+			private final Flame			flame;
+			private final Palette			palette;
+			private final JFrame			window;
 
 			public Compute(final File file, final JFrame window) {
 				this.file = file;
 				this.window = window;
+				// the state of the GUI when the image is asked
+				this.flame = FlameMakerGUI.this.builder.build();
+				this.palette = FlameMakerGUI.this.palette;
+				this.background = FlameMakerGUI.this.background;
 			}
 
 			@Override
 			protected Void doInBackground() {
 				final Dimension d = Toolkit.getDefaultToolkit().getScreenSize();
-				final int m = d.height * d.width * FlameMakerGUI.this.density;
+				final long m = (long) d.height * d.width * FlameMakerGUI.this.density;
 
-				final JProgressBar bar = new JProgressBar(0, m);
+				// the bar counts steps, as m may not fit in an int
+				final JProgressBar bar = new JProgressBar(0, 2 * FlameMakerGUI.SAVE_STEPS);
 				bar.setString("Calcul de l'image");
 				bar.setStringPainted(true);
 
@@ -977,28 +976,58 @@ public class FlameMakerGUI {
 				this.window.pack();
 				this.window.setVisible(true);
 
-				final Rectangle actualFrame = FlameMakerGUI.this.frame.expandToAspectRatio(d.width
-						/ (double) d.height);
-				final FlameAccumulator.Builder accuBuilder = new FlameAccumulator.Builder(actualFrame,
-						d.width, d.height);
-				final Flame flame = FlameMakerGUI.this.builder.build();
+				// if only the colors changed since the last image, its
+				// accumulator is colored again
+				FlameAccumulator accu;
+				synchronized (FlameMakerGUI.this) {
+					accu = FlameMakerGUI.this.exported;
+					if (accu == null || !this.flame.equals(FlameMakerGUI.this.exportedFlame)
+							|| accu.width() != d.width || accu.height() != d.height) {
+						accu = null;
+					}
+				}
+
+				if (accu == null) {
+					final Rectangle actualFrame = FlameMakerGUI.this.frame.expandToAspectRatio(d.width
+							/ (double) d.height);
+					final FlameAccumulator.Builder accuBuilder = new FlameAccumulator.Builder(
+							actualFrame, d.width, d.height);
+					// a long render, worth generating a kernel for the
+					// flame
+					final Flame flame = this.flame.withPrecision(Preferences.values.precision)
+							.specialize();
+					final RenderSession session = new RenderSession(flame, accuBuilder);
+
+					// the last step hits the remainder of the division
+					for (int step = 1; step <= FlameMakerGUI.SAVE_STEPS; step++) {
+						session.advance(m * step / FlameMakerGUI.SAVE_STEPS - session.total());
+						bar.setValue(step);
+					}
 
-				for (int total = 0; total < m; total += 5000) {
-					flame.compute(5000, accuBuilder);
-					bar.setValue(total / 2);
+					accu = accuBuilder.build();
+					synchronized (FlameMakerGUI.this) {
+						FlameMakerGUI.this.exported = accu;
+						FlameMakerGUI.this.exportedFlame = this.flame;
+					}
+				} else {
+					// the computing half is already done
+					bar.setValue(FlameMakerGUI.SAVE_STEPS);
 				}
 
 				try {
 					bar.setString("Écriture de l'image");
 					final PrintStream stream = new PrintStream(this.file);
-					final FlameAccumulator accu = accuBuilder.build();
-
-					bar.setMaximum(accu.height() * 2);
 
+					// colored in parallel, then written row after row
+					final int[] pixels = accu.packedImage(this.palette, this.background, new int[accu
+							.width() * accu.height()]);
 					for (int i = 0; i < accu.height(); i++) {
-						FlamePPMMaker.writeToPPMIncremental(accu, stream, i);
-						bar.setValue(accu.height() + i);
+						FlamePPMMaker.writeToPPMIncremental(pixels, accu.width(), stream, i);
+						// the rows fill the second half of the steps
+						bar.setValue(FlameMakerGUI.SAVE_STEPS
+								+ (int) ((i + 1L) * FlameMakerGUI.SAVE_STEPS / accu.height()));
 					}
+					stream.close();
 
 				} catch (final FileNotFoundException e) {
 					e.printStackTrace();
@@ -1056,7 +1085,8 @@ public class FlameMakerGUI {
 					final Preferences pref = new Preferences(FlameMakerGUI.this.background,
 							FlameMakerGUI.this.builder, FlameMakerGUI.this.density,
 							FlameMakerGUI.this.frame, FlameMakerGUI.this.palette,
-							Preferences.defaults.threads, Preferences.defaults.refresh,
+							Preferences.defaults.threads, Preferences.values.precision,
+							Preferences.defaults.refresh,
 							Preferences.defaults.step, Preferences.defaults.threshold,
 							Preferences.defaults.path);
 
@@ -1143,17 +1173,32 @@ public class FlameMakerGUI {
 				@Override
 				public void actionPerformed(@SuppressWarnings("unused") final ActionEvent e) {
 					final JFrame window = new JFrame();
-					window.add(new FlameBuilderPreviewComponent(FlameMakerGUI.this.builder,
-							FlameMakerGUI.this.background, FlameMakerGUI.this.palette,
-							FlameMakerGUI.this.frame, FlameMakerGUI.this.density));
+					window.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+					final FlameBuilderPreviewComponent preview = new FlameBuilderPreviewComponent(
+							FlameMakerGUI.this.builder, FlameMakerGUI.this.background,
+							FlameMakerGUI.this.palette, FlameMakerGUI.this.frame,
+							FlameMakerGUI.this.density);
+					FlameMakerGUI.this.previews.add(preview);
+					window.add(preview);
 					window.pack();
 					window.setVisible(true);
 
+					window.addWindowListener(new WindowAdapter() {
+
+						@Override
+						public void windowClosed(@SuppressWarnings("unused") final WindowEvent e) {
+							// however the window is closed, the preview
+							// stops computing and is not kept anymore
+							FlameMakerGUI.this.previews.remove(preview);
+							FlameMakerGUI.this.builder.removeObserver(preview);
+						}
+					});
+
 					window.addKeyListener(new KeyListener() {
 
 						@Override
 						public void keyTyped(@SuppressWarnings("unused") KeyEvent e) {
-							window.setVisible(false);
+							window.dispose();
 						}
 
 						@Override
@@ -1172,6 +1217,15 @@ public class FlameMakerGUI {
 				}
 			};
 
+		case RANDOM_PALETTE:
+			return new ActionListener() {
+
+				@Override
+				public void actionPerformed(@SuppressWarnings("unused") final ActionEvent e) {
+					FlameMakerGUI.this.setColors(new RandomPalette(3), FlameMakerGUI.this.background);
+				}
+			};
+
 		default:
 			throw new IllegalArgumentException();
 		}
@@ -1433,8 +1487,10 @@ public class FlameMakerGUI {
 		panel.setBorder(border);
 
 		panel.setLayout(new BorderLayout());
-		panel.add(new FlameBuilderPreviewComponent(this.builder, this.background, this.palette, this.frame,
-				this.density));
+		final FlameBuilderPreviewComponent preview = new FlameBuilderPreviewComponent(this.builder,
+				this.background, this.palette, this.frame, this.density);
+		this.previews.add(preview);
+		panel.add(preview);
 
 		return panel;
 	}
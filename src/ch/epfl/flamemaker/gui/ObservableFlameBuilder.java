@@ -33,6 +33,12 @@ public class ObservableFlameBuilder {
 	 */
 	private final Flame.Builder	builder;
 
+	/**
+	 * The {@link Flame} built from the actual state of the builder, null
+	 * until it is asked after a change
+	 */
+	private Flame			flame;
+
 	/**
 	 * {@link Set} of the {@link Observer} of the {@link Builder}
 	 */
@@ -59,6 +65,7 @@ public class ObservableFlameBuilder {
 	 */
 	public ObservableFlameBuilder(final ObservableFlameBuilder builder) {
 		this.builder = new Builder(builder.builder);
+		this.flame = builder.flame;
 		this.observers = new HashSet<ObservableFlameBuilder.Observer>();
 		for (final Observer observer : builder.observers) {
 			this.observers.add(observer);
@@ -108,11 +115,18 @@ public class ObservableFlameBuilder {
 
 	/**
 	 * Return a {@link Flame} with the actual state of the Builder
+	 * <p>
+	 * The {@link Flame} is immutable, thus it is built only once after
+	 * every change, and the same one is returned until the next change.
+	 * </p>
 	 * 
 	 * @return A {@link Flame} with the actual state of the Builder
 	 */
 	public Flame build() {
-		return this.builder.build();
+		if (this.flame == null) {
+			this.flame = this.builder.build();
+		}
+		return this.flame;
 	}
 
 	@Override
@@ -144,6 +158,11 @@ public class ObservableFlameBuilder {
 		return true;
 	}
 
+	@Override
+	public int hashCode() {
+		return this.builder.hashCode();
+	}
+
 	/**
 	 * Remove the given {@link Observer}
 	 * 
@@ -240,9 +259,11 @@ public class ObservableFlameBuilder {
 	}
 
 	/**
-	 * Execute changedObservedValue() for every {@link Observer} we have
+	 * Execute changedObservedValue() for every {@link Observer} we have,
+	 * after dropping the {@link Flame} built before the change
 	 */
 	private void warnObservers() {
+		this.flame = null;
 		for (final Observer observer : this.observers) {
 			observer.changedBuilder();
 		}
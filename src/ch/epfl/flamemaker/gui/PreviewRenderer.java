@@ -0,0 +1,429 @@
+package ch.epfl.flamemaker.gui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.extra.Preferences;
+import ch.epfl.flamemaker.flame.Flame;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.RenderSession;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * The computation of the preview of a {@link Flame}, done by a background
+ * thread so that the Swing thread only draws the last image computed
+ * <p>
+ * The thread advances a {@link RenderSession} step after step, each step
+ * lasting about {@link Preferences#refresh} milliseconds (or computing
+ * {@link Preferences#step} points if it is set), and after every step it
+ * colors a new image and calls the listener, which repaints the component. A
+ * new fractal or size is taken at the end of the slice of step in progress
+ * (the steps are walked in {@link #SLICES} slices), the session being then
+ * started again from zero, and the image of the old one is not colored.
+ * Several fractals asked during a slice thus start only one session, the last
+ * one. The kernel of the {@link Flame} in the precision of the preferences is
+ * kept while the same fractal is asked again, e.g. at another size.
+ * </p>
+ * <p>
+ * New colors do not restart the session: the last accumulator is only colored
+ * again, even once the computation is done.
+ * </p>
+ * <p>
+ * The images are not allocated for every step: two images are used in turn,
+ * the accumulator being colored straight into the pixels of the one not shown
+ * by the last {@link Snapshot}, and they are allocated again only when the
+ * size changes.
+ * </p>
+ * <p>
+ * {@link #stop()} ends the thread at the end of the slice in progress, and
+ * the next call of {@link #render(Flame, Rectangle, int, int)} starts it
+ * again, the last image being kept meanwhile.
+ * </p>
+ */
+public final class PreviewRenderer implements Runnable {
+
+	/**
+	 * An image computed by the {@link PreviewRenderer}, whose pixels are
+	 * written again two snapshots later: it has to be drawn while
+	 * synchronized on the image
+	 */
+	public static final class Snapshot {
+
+		/**
+		 * The image of the fractal
+		 */
+		private final BufferedImage	image;
+
+		/**
+		 * The fraction of the points computed, from 0 to 1
+		 */
+		private final double		progress;
+
+		/**
+		 * Construct a {@link Snapshot} of the given image
+		 * 
+		 * @param image
+		 *                The image of the fractal
+		 * @param progress
+		 *                The fraction of the points computed, from 0 to
+		 *                1
+		 */
+		public Snapshot(final BufferedImage image, final double progress) {
+			this.image = image;
+			this.progress = progress;
+		}
+
+		/**
+		 * Return the image of the fractal
+		 * 
+		 * @return The image of the fractal
+		 */
+		public BufferedImage image() {
+			return this.image;
+		}
+
+		/**
+		 * Return the fraction of the points computed
+		 * 
+		 * @return The fraction of the points computed, from 0 to 1
+		 */
+		public double progress() {
+			return this.progress;
+		}
+	}
+
+	/**
+	 * The number of points of the first step, when the step is adapted to
+	 * the refresh time
+	 */
+	private static final int	FIRST_STEP	= 1000;
+
+	/**
+	 * The number of slices of a step, between which the thread checks if
+	 * another fractal was asked
+	 */
+	private static final int	SLICES		= 8;
+
+	/**
+	 * The background {@link Color}
+	 */
+	private Color			background;
+
+	/**
+	 * The number of changes of colors asked so far, the thread coloring
+	 * the image again when it changes
+	 */
+	private long			colors;
+
+	/**
+	 * The density of the computation
+	 */
+	private final int		density;
+
+	/**
+	 * The {@link Flame} to compute, null until one is asked
+	 */
+	private Flame			flame;
+
+	/**
+	 * The scope of the fractal, expanded to the aspect ratio of the image
+	 */
+	private Rectangle		frame;
+
+	/**
+	 * The number of computations asked or stopped so far, the thread
+	 * starting again when it changes
+	 */
+	private volatile long		generation;
+
+	/**
+	 * The height of the image, in pixels
+	 */
+	private int			height;
+
+	/**
+	 * The two images colored in turn by the thread, null until they are
+	 * needed
+	 */
+	private final BufferedImage[]	images;
+
+	/**
+	 * The last image computed, null before the first one
+	 */
+	private volatile Snapshot	latest;
+
+	/**
+	 * Called by the thread every time an image is computed
+	 */
+	private final Runnable		listener;
+
+	/**
+	 * A {@link Logger} used to warn of too high refresh rate
+	 */
+	private final Logger		logger;
+
+	/**
+	 * The {@link Palette} used to color the images
+	 */
+	private Palette			palette;
+
+	/**
+	 * The refresh time, in milliseconds
+	 */
+	private int			refresh;
+
+	/**
+	 * True once the thread has to end, until the next computation asked
+	 */
+	private boolean			stopped;
+
+	/**
+	 * The thread computing the images, null when it is not running
+	 */
+	private Thread			thread;
+
+	/**
+	 * The width of the image, in pixels
+	 */
+	private int			width;
+
+	/**
+	 * Construct a {@link PreviewRenderer}, whose thread is started by the
+	 * first call of {@link #render(Flame, Rectangle, int, int)}
+	 * 
+	 * @param background
+	 *                The background {@link Color} of the fractal
+	 * @param palette
+	 *                The {@link Palette} to color the fractal with
+	 * @param density
+	 *                The density of computation for the fractal
+	 * @param listener
+	 *                Called by the thread every time an image is computed
+	 */
+	public PreviewRenderer(final Color background, final Palette palette, final int density,
+			final Runnable listener) {
+		this.background = background;
+		this.palette = palette;
+		this.density = density;
+		this.listener = listener;
+		this.images = new BufferedImage[2];
+		this.refresh = Preferences.values.refresh;
+		this.logger = Logger.getLogger(PreviewRenderer.class.getName());
+	}
+
+	/**
+	 * Return the last image computed
+	 * 
+	 * @return The last image computed, null before the first one
+	 */
+	public Snapshot latest() {
+		return this.latest;
+	}
+
+	/**
+	 * Color the images with the given colors from now on, coloring again
+	 * the last one without computing the fractal again
+	 * 
+	 * @param palette
+	 *                The {@link Palette} to color the fractal with
+	 * @param background
+	 *                The background {@link Color} of the fractal
+	 */
+	public synchronized void recolor(final Palette palette, final Color background) {
+		this.palette = palette;
+		this.background = background;
+		this.colors++;
+		this.notifyAll();
+	}
+
+	/**
+	 * Start computing the given {@link Flame} from zero, at the end of the
+	 * slice of step in progress, starting the thread if it is not running
+	 * 
+	 * @param flame
+	 *                The {@link Flame} to compute
+	 * @param frame
+	 *                The scope of the fractal, expanded to the aspect ratio
+	 *                of the image
+	 * @param width
+	 *                The width of the image, in pixels
+	 * @param height
+	 *                The height of the image, in pixels
+	 */
+	public synchronized void render(final Flame flame, final Rectangle frame, final int width, final int height) {
+		this.flame = flame;
+		this.frame = frame.expandToAspectRatio(width / (double) height);
+		this.width = width;
+		this.height = height;
+		this.generation++;
+		this.stopped = false;
+
+		if (this.thread == null) {
+			this.thread = new Thread(this, "preview");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		this.notifyAll();
+	}
+
+	/**
+	 * Compute the asked {@link Flame} until it is stopped, do not call it
+	 * directly
+	 */
+	@Override
+	public void run() {
+		long generation = 0, colors = 0, computed = 0, points = 0, step = 0;
+		FlameAccumulator.Builder image = null;
+		RenderSession session = null;
+		Flame source = null, prepared = null;
+		Palette palette;
+		Color background;
+
+		while (true) {
+			synchronized (this) {
+				// wait for something new to compute or to color
+				while (!this.stopped && this.generation == generation && this.colors == colors
+						&& computed >= points) {
+					try {
+						this.wait();
+					} catch (final InterruptedException e) {
+						this.thread = null;
+						return;
+					}
+				}
+				if (this.stopped) {
+					// the next computation starts another thread
+					this.thread = null;
+					return;
+				}
+
+				if (this.generation != generation) {
+					generation = this.generation;
+					if (!this.flame.equals(source)) {
+						// a new size keeps the kernel of the same
+						// flame
+						source = this.flame;
+						prepared = source.withPrecision(Preferences.values.precision);
+					}
+					image = new FlameAccumulator.Builder(this.frame, this.width, this.height);
+					session = new RenderSession(prepared, image);
+					points = (long) this.density * this.width * this.height;
+					computed = 0;
+					step = Preferences.values.step > 0 ? Preferences.values.step
+							: PreviewRenderer.FIRST_STEP;
+				}
+				colors = this.colors;
+				palette = this.palette;
+				background = this.background;
+			}
+
+			if (image == null) {
+				// only colors were asked, nothing to color yet
+				continue;
+			}
+
+			final long begin = System.currentTimeMillis();
+			final long samples = Math.min(step, points - computed);
+			final long slice = Math.max(PreviewRenderer.FIRST_STEP, step / PreviewRenderer.SLICES);
+			for (long done = 0; done < samples; done += slice) {
+				if (this.generation != generation) {
+					break;
+				}
+				session.advance(Math.min(slice, samples - done));
+			}
+			if (this.generation != generation) {
+				// not worth coloring, another fractal is asked
+				continue;
+			}
+
+			computed += samples;
+			final BufferedImage painted = this.paint(image.build(), palette, background);
+			synchronized (this) {
+				if (this.generation != generation) {
+					// another fractal was asked while coloring
+					continue;
+				}
+				this.latest = new Snapshot(painted, computed / (double) points);
+			}
+			this.listener.run();
+
+			if (samples > 0 && Preferences.values.step <= 0) {
+				step = this.adapt(step, System.currentTimeMillis() - begin);
+			}
+		}
+	}
+
+	/**
+	 * Stop the thread, at the end of the slice of step in progress, whose
+	 * image is not colored
+	 */
+	public synchronized void stop() {
+		this.stopped = true;
+		this.generation++;
+		this.notifyAll();
+	}
+
+	/**
+	 * Return the number of points of the next step, so that it lasts about
+	 * the refresh time, increasing the refresh time if even a small step
+	 * is too long
+	 * 
+	 * @param step
+	 *                The number of points of the last step
+	 * @param time
+	 *                The time the last step lasted, in milliseconds
+	 * 
+	 * @return The number of points of the next step
+	 */
+	private long adapt(final long step, final long time) {
+		final double ratio = this.refresh / (double) Math.max(time, 1);
+		if (ratio < 1 && step < Preferences.values.threshold) {
+			this.logger.log(Level.WARNING,
+					"Your time setting (the refresh rate) is too low, and thus, we can't keep up. We're adjusting it for now, but consider adding an higher value to the preferences.");
+			this.refresh += 100;
+			return PreviewRenderer.FIRST_STEP;
+		}
+		return Math.max(PreviewRenderer.FIRST_STEP, (long) (step * ratio));
+	}
+
+	/**
+	 * Color the given {@link FlameAccumulator} into the image not shown by
+	 * the last {@link Snapshot}, in parallel, the bottom row of the
+	 * accumulator being the bottom row of the image
+	 * <p>
+	 * The pixels are written straight into the raster of the image, which
+	 * is allocated again only if its size is not the one of the
+	 * accumulator.
+	 * </p>
+	 * 
+	 * @param accu
+	 *                The {@link FlameAccumulator} to color
+	 * @param palette
+	 *                The {@link Palette} to color the fractal with
+	 * @param background
+	 *                The background {@link Color} of the fractal
+	 * 
+	 * @return The image of the {@link FlameAccumulator}
+	 */
+	private BufferedImage paint(final FlameAccumulator accu, final Palette palette, final Color background) {
+		final Snapshot latest = this.latest;
+		final int index = latest != null && latest.image() == this.images[0] ? 1 : 0;
+
+		BufferedImage image = this.images[index];
+		if (image == null || image.getWidth() != accu.width() || image.getHeight() != accu.height()) {
+			image = new BufferedImage(accu.width(), accu.height(), BufferedImage.TYPE_INT_RGB);
+			this.images[index] = image;
+		}
+
+		// the image of an older snapshot may still be drawn
+		final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		synchronized (image) {
+			accu.packedImage(palette, background, pixels);
+		}
+		return image;
+	}
+}
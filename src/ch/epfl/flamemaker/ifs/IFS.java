@@ -2,12 +2,12 @@ package ch.epfl.flamemaker.ifs;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
+import ch.epfl.flamemaker.extra.FastRandom;
 import ch.epfl.flamemaker.flame.Flame;
 import ch.epfl.flamemaker.flame.FlameTransformation;
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
-import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
 
 /**
@@ -55,10 +55,45 @@ public final class IFS {
 	 * @return A {@link IFSAccumulator} with the generate fractal
 	 */
 	public IFSAccumulator compute(final Rectangle frame, final int width, final int height, final int density) {
+		return this.compute(frame, width, height, density, new FastRandom().nextLong());
+	}
 
-		final Random random = new Random();
-		Point p = Point.ORIGIN;
-		final int m = density * width * height;
+	/**
+	 * Compute the fractal, with the given scope (frame), the definition
+	 * (width and height) and the accuracy (density), the same seed giving
+	 * the same {@link IFSAccumulator}
+	 * <p>
+	 * If the point escapes (see
+	 * {@link MutablePoint#escaped(double, double)}), it is reseeded at a
+	 * random point of the square [-1, 1]² and randomized again, the number
+	 * of reseeds being given by {@link IFSAccumulator#reseeds()}
+	 * </p>
+	 * 
+	 * @param frame
+	 *                The scope of the fractal, used in the
+	 *                {@link IFSAccumulator}
+	 * @param width
+	 *                The width of the {@link IFSAccumulator}
+	 * @param height
+	 *                The height of the {@link IFSAccumulator}
+	 * @param density
+	 *                A constant representing the <i>accuracy</i> (the more,
+	 *                the more accurate the fractal will be but the longer
+	 *                it will take to generate)
+	 * @param seed
+	 *                The seed of the generator
+	 * 
+	 * @return A {@link IFSAccumulator} with the generate fractal
+	 */
+	public IFSAccumulator compute(final Rectangle frame, final int width, final int height, final int density,
+			final long seed) {
+
+		final FastRandom random = new FastRandom(seed);
+
+		// the same point is transformed in place, to not create any object
+		// in the loop
+		final MutablePoint p = new MutablePoint();
+		final long m = (long) density * width * height;
 		final IFSAccumulatorBuilder image = new IFSAccumulatorBuilder(frame, width, height);
 
 		// Speed up if we do not have any transformation
@@ -66,19 +101,38 @@ public final class IFS {
 			return image.build();
 		}
 
-		// Randomize the point
-		for (int j = 0; j < 20; j++) {
-			final int i = random.nextInt(this.transformations.size());
-			p = this.transformations.get(i).transformPoint(p);
-		}
+		this.warmUp(p, random);
 
 		// Do the actual computation and hit the accumulator
-		for (int j = 0; j < m; j++) {
+		for (long j = 0; j < m; j++) {
 			final int i = random.nextInt(this.transformations.size());
-			p = this.transformations.get(i).transformPoint(p);
-			image.hit(p);
+			this.transformations.get(i).transformPoint(p.x(), p.y(), p);
+
+			if (MutablePoint.escaped(p.x(), p.y())) {
+				image.reseed();
+				p.set(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+				this.warmUp(p, random);
+				continue;
+			}
+
+			image.hit(p.x(), p.y());
 		}
 
 		return image.build();
 	}
+
+	/**
+	 * Randomize the given point 20 times, without hitting it
+	 * 
+	 * @param p
+	 *                The point to randomize, in place
+	 * @param random
+	 *                The generator choosing the transformations
+	 */
+	private void warmUp(final MutablePoint p, final FastRandom random) {
+		for (int j = 0; j < 20; j++) {
+			final int i = random.nextInt(this.transformations.size());
+			this.transformations.get(i).transformPoint(p.x(), p.y(), p);
+		}
+	}
 }
@@ -5,9 +5,19 @@ package ch.epfl.flamemaker.ifs;
  */
 public final class IFSAccumulator {
 	/**
-	 * Bidimensional array of booleans that <i>is</i> the Accumulator
+	 * Array of booleans that <i>is</i> the Accumulator, row after row
 	 */
-	private final boolean[][]	isHit;
+	private final boolean[]		isHit;
+
+	/**
+	 * The number of times the point was reseeded after it escaped
+	 */
+	private final long		reseeds;
+
+	/**
+	 * The width of the accumulator
+	 */
+	private final int		width;
 
 	/**
 	 * Creates an {@link IFSAccumulator}
@@ -16,23 +26,55 @@ public final class IFSAccumulator {
 	 *                bidimensional array of booleans
 	 */
 	public IFSAccumulator(final boolean[][] isHit) {
-		this.isHit = new boolean[isHit.length][isHit[0].length];
+		this(isHit, 0);
+	}
+
+	/**
+	 * Creates an {@link IFSAccumulator} of a computation whose point was
+	 * reseeded the given number of times
+	 * 
+	 * @param isHit
+	 *                bidimensional array of booleans
+	 * @param reseeds
+	 *                The number of times the point was reseeded
+	 */
+	public IFSAccumulator(final boolean[][] isHit, final long reseeds) {
+		this.reseeds = reseeds;
+		this.width = isHit.length;
+		this.isHit = new boolean[isHit.length * isHit[0].length];
 
 		// Deep copy of the array
 		for (int x = 0; x < isHit.length; x++) {
 			for (int y = 0; y < isHit[0].length; y++) {
-				this.isHit[x][y] = isHit[x][y];
+				this.isHit[y * this.width + x] = isHit[x][y];
 			}
 		}
 	}
 
+	/**
+	 * Creates an {@link IFSAccumulator} owning the given array, which must
+	 * not be modified anymore
+	 * 
+	 * @param isHit
+	 *                The array of booleans, row after row
+	 * @param width
+	 *                The width of the accumulator
+	 * @param reseeds
+	 *                The number of times the point was reseeded
+	 */
+	IFSAccumulator(final boolean[] isHit, final int width, final long reseeds) {
+		this.reseeds = reseeds;
+		this.width = width;
+		this.isHit = isHit;
+	}
+
 	/**
 	 * Returns the height of the accumulator
 	 * 
 	 * @return The height of the accumulator
 	 */
 	public int height() {
-		return this.isHit[0].length;
+		return this.isHit.length / this.width;
 	}
 
 	/**
@@ -50,11 +92,24 @@ public final class IFSAccumulator {
 	 *                 the width or y is greater than the height
 	 */
 	public boolean isHit(final int x, final int y) {
-		if (x > this.width() || x < 0 || y > this.height() || y < 0) {
+		if (x >= this.width() || x < 0 || y >= this.height() || y < 0) {
 			throw new IndexOutOfBoundsException();
 		}
 
-		return (this.isHit[x][y]);
+		return (this.isHit[y * this.width + x]);
+	}
+
+	/**
+	 * Return the number of times the point was reseeded after it escaped,
+	 * which is zero for most fractals
+	 * 
+	 * @return The number of times the point was reseeded
+	 * 
+	 * @see IFS#compute(ch.epfl.flamemaker.geometry2d.Rectangle, int, int,
+	 *      int, long)
+	 */
+	public long reseeds() {
+		return this.reseeds;
 	}
 
 	/**
@@ -63,6 +118,6 @@ public final class IFSAccumulator {
 	 * @return The width of the accumulator
 	 */
 	public int width() {
-		return this.isHit.length;
+		return this.width;
 	}
 }
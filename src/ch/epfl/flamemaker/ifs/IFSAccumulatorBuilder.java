@@ -1,6 +1,6 @@
 package ch.epfl.flamemaker.ifs;
 
-import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.PixelMapper;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
 
@@ -10,18 +10,19 @@ import ch.epfl.flamemaker.geometry2d.Rectangle;
 public class IFSAccumulatorBuilder {
 
 	/**
-	 * The scope relevant to the fractal
+	 * Array of booleans that <i>is</i> the accumulator, indexed by the
+	 * mapper
 	 */
-	private final Rectangle		frame;
+	private final boolean[]		isHit;
 	/**
-	 * Bidimensional array of booleans that <i>is</i> the accumulator
+	 * The mapper of the points of the scope relevant to the fractal to the
+	 * pixels
 	 */
-	private final boolean[][]	isHit;
+	private final PixelMapper	mapper;
 	/**
-	 * Specific transformation used to <i>move</i> the point given in
-	 * hit(Point) to the actual position in our array
+	 * The number of times the point hitting the builder was reseeded
 	 */
-	private AffineTransformation	transformation;
+	private long			reseeds;
 
 	/**
 	 * Build an {@link IFSAccumulatorBuilder} with the given scope (frame)
@@ -42,12 +43,8 @@ public class IFSAccumulatorBuilder {
 			throw new IllegalArgumentException();
 		}
 
-		this.frame = frame;
-		this.transformation = AffineTransformation.newScaling(width / frame.width(), height / frame.height());
-		this.transformation = this.transformation.composeWith(AffineTransformation.newTranslation(
-				-frame.left(), -frame.bottom()));
-
-		this.isHit = new boolean[width][height];
+		this.mapper = new PixelMapper(frame, width, height);
+		this.isHit = new boolean[width * height];
 	}
 
 	/**
@@ -56,7 +53,8 @@ public class IFSAccumulatorBuilder {
 	 * @return An {@link IFSAccumulator} with the current points
 	 */
 	public IFSAccumulator build() {
-		return new IFSAccumulator(this.isHit);
+		// the builder goes on hitting its own array
+		return new IFSAccumulator(this.isHit.clone(), this.mapper.width(), this.reseeds);
 	}
 
 	/**
@@ -66,17 +64,32 @@ public class IFSAccumulatorBuilder {
 	 * @param p
 	 *                The point to hit
 	 */
-	public void hit(Point p) {
-		if (!this.frame.contains(p)) {
-			return;
+	public void hit(final Point p) {
+		this.hit(p.x(), p.y());
+	}
+
+	/**
+	 * Sets the point (x, y) as hit, without creating any object, do
+	 * nothing if the point is out of scope
+	 * 
+	 * @param x
+	 *                The x value of the point to hit
+	 * @param y
+	 *                The y value of the point to hit
+	 */
+	public void hit(final double x, final double y) {
+		final int index = this.mapper.index(x, y);
+		if (index >= 0) {
+			this.isHit[index] = true;
 		}
+	}
 
-		// We transform the point in our system
-		p = this.transformation.transformPoint(p);
-		// A nice cast
-		final int px = (int) Math.floor(p.x());
-		final int py = (int) Math.floor(p.y());
-		this.isHit[px][py] = true;
+	/**
+	 * Count one more reseed of the point hitting the builder, given to the
+	 * built {@link IFSAccumulator}
+	 */
+	public void reseed() {
+		this.reseeds++;
 	}
 
 }
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 
 public class AffineTransformationTest {
@@ -37,6 +38,16 @@ public class AffineTransformationTest {
 		Assert.assertEquals(1, point.y(), AffineTransformationTest.DELTA);
 	}
 
+	@Test
+	public void testHashCode() {
+		final AffineTransformation zero = new AffineTransformation(1, 0, 0, 0, 1, 0);
+		final AffineTransformation negativeZero = new AffineTransformation(1, -0.0, 0, -0.0, 1, 0);
+
+		Assert.assertEquals(zero, negativeZero);
+		Assert.assertEquals(zero.hashCode(), negativeZero.hashCode());
+		Assert.assertEquals(zero.hashCode(), AffineTransformation.IDENTITY.hashCode());
+	}
+
 	@Test
 	public void testNewRotation() {
 		final Point ref = new Point(-1, 1);
@@ -111,6 +122,17 @@ public class AffineTransformationTest {
 
 	}
 
+	@Test
+	public void testTransformPointInPlace() {
+		final AffineTransformation matrice = new AffineTransformation(1, 2, 3, 4, 5, 6);
+		final Point ref = matrice.transformPoint(new Point(1, 2));
+
+		final MutablePoint point = new MutablePoint(1, 2);
+		matrice.transformPoint(point.x(), point.y(), point);
+		Assert.assertEquals(ref.x(), point.x(), AffineTransformationTest.DELTA);
+		Assert.assertEquals(ref.y(), point.y(), AffineTransformationTest.DELTA);
+	}
+
 	@Test
 	public void testTranslationX() {
 		final double ref = 4;
@@ -0,0 +1,39 @@
+package ch.epfl.flamemaker.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.extra.FastMath;
+import ch.epfl.flamemaker.extra.FastRandom;
+
+public class FastMathTest {
+
+	@Test
+	public void testCos() {
+		final FastRandom random = new FastRandom(42);
+		for (int i = 0; i < 100000; i++) {
+			final double x = (random.nextDouble() - 0.5) * 2000;
+			Assert.assertEquals(Math.cos(x), FastMath.cos(x), 2e-9);
+		}
+	}
+
+	@Test
+	public void testLimit() {
+		final double x = FastMath.LIMIT * 3;
+		Assert.assertEquals(Math.sin(x), FastMath.sin(x), 0);
+		Assert.assertEquals(Math.cos(x), FastMath.cos(x), 0);
+		Assert.assertTrue(Double.isNaN(FastMath.sin(Double.NaN)));
+		Assert.assertTrue(Double.isNaN(FastMath.cos(Double.POSITIVE_INFINITY)));
+	}
+
+	@Test
+	public void testSin() {
+		final FastRandom random = new FastRandom(42);
+		for (int i = 0; i < 100000; i++) {
+			final double x = (random.nextDouble() - 0.5) * 2000;
+			Assert.assertEquals(Math.sin(x), FastMath.sin(x), 2e-9);
+		}
+		Assert.assertEquals(Math.sin(FastMath.LIMIT), FastMath.sin(FastMath.LIMIT), 2e-9);
+		Assert.assertEquals(0, FastMath.sin(0), 0);
+	}
+}
@@ -0,0 +1,58 @@
+package ch.epfl.flamemaker.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.extra.FastRandom;
+
+public class FastRandomTest {
+
+	@Test
+	public void testNextDouble() {
+		final FastRandom random = new FastRandom(42);
+		for (int i = 0; i < 10000; i++) {
+			final double value = random.nextDouble();
+			Assert.assertTrue(value >= 0 && value < 1);
+		}
+	}
+
+	@Test
+	public void testNextInt() {
+		final FastRandom random = new FastRandom(42);
+		final int[] count = new int[3];
+		for (int i = 0; i < 30000; i++) {
+			count[random.nextInt(3)]++;
+		}
+
+		for (final int c : count) {
+			Assert.assertTrue(c > 9000 && c < 11000);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNextIntZero() {
+		new FastRandom().nextInt(0);
+	}
+
+	@Test
+	public void testSeed() {
+		final FastRandom a = new FastRandom(42), b = new FastRandom(42);
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(a.nextLong(), b.nextLong());
+		}
+	}
+
+	@Test
+	public void testSplit() {
+		final FastRandom a = new FastRandom(42);
+		final FastRandom b = a.split();
+
+		int same = 0;
+		for (int i = 0; i < 100; i++) {
+			if (a.nextLong() == b.nextLong()) {
+				same++;
+			}
+		}
+		Assert.assertEquals(0, same);
+	}
+}
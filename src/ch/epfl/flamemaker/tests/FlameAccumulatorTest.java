@@ -3,23 +3,138 @@ package ch.epfl.flamemaker.tests;
 import org.junit.Assert;
 import org.junit.Test;
 
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.RandomPalette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.FlamePPMMaker;
+import ch.epfl.flamemaker.flame.RenderSession;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
 public class FlameAccumulatorTest {
 
+	@Test
+	public void testBuild() {
+		final FlameAccumulator.Builder builder = new FlameAccumulator.Builder(new Rectangle(new Point(0, 0), 4,
+				4), 4, 4);
+		builder.hit(0.5, 0.5, 0.25);
+		final FlameAccumulator first = builder.build();
+		Assert.assertSame(first, builder.build());
+
+		// the snapshot does not change with the builder
+		final Palette palette = new RandomPalette(3);
+		final int before = first.color(palette, Color.BLACK, 2, 2).asPackedRGB();
+		builder.hit(0.5, 0.5, 1);
+		builder.hit(-1.5, -1.5, 1);
+		final FlameAccumulator second = builder.build();
+
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(before, first.color(palette, Color.BLACK, 2, 2).asPackedRGB());
+		Assert.assertEquals(Color.BLACK.asPackedRGB(), first.color(palette, Color.BLACK, 0, 0).asPackedRGB());
+		Assert.assertTrue(Color.BLACK.asPackedRGB() != second.color(palette, Color.BLACK, 0, 0).asPackedRGB());
+	}
+
+	@Test
+	public void testDensity() {
+		final FlameAccumulator.Builder builder = new FlameAccumulator.Builder(new Rectangle(new Point(0, 0), 4,
+				4), 4, 4);
+		Assert.assertEquals(0, builder.build().hitCountQuantile(1));
+
+		builder.hit(0.5, 0.5, 0);
+		for (int i = 0; i < 3; i++) {
+			builder.hit(-0.5, 0.5, 0);
+		}
+		for (int i = 0; i < 5; i++) {
+			builder.hit(-1.5, 1.5, 0);
+		}
+		final FlameAccumulator accu = builder.build();
+
+		final long[] density = accu.density();
+		Assert.assertEquals(13, density[0]);
+		Assert.assertEquals(1, density[1]);
+		Assert.assertEquals(1, density[2]);
+		Assert.assertEquals(1, density[3]);
+		Assert.assertEquals(0, density[4]);
+		Assert.assertEquals(5, accu.maxHitCount());
+
+		Assert.assertEquals(1, accu.hitCountQuantile(0));
+		Assert.assertEquals(3, accu.hitCountQuantile(0.5));
+		Assert.assertEquals(5, accu.hitCountQuantile(1));
+	}
+
 	@Test
 	public void testFlameAccumulator() {
 		Assert.fail("Not yet implemented");
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testFlameAccumulatorTooLarge() {
+		// 10^10 pixels, wrapped to a positive int by an unchecked product
+		new FlameAccumulator.Builder(new Rectangle(Point.ORIGIN, 1, 1), 100000, 100000);
+	}
+
 	@Test
 	public void testHeight() {
 		Assert.fail("Not yet implemented");
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testHitCountQuantileInvalid() {
+		new FlameAccumulator.Builder(new Rectangle(new Point(0, 0), 4, 4), 4, 4).build().hitCountQuantile(1.5);
+	}
+
 	@Test
 	public void testIntensity() {
 		Assert.fail("Not yet implemented");
 	}
 
+	@Test
+	public void testPackedImage() {
+		final FlameAccumulator.Builder builder = new FlameAccumulator.Builder(new Rectangle(new Point(0, 0), 4,
+				3), 4, 3);
+		builder.hit(-1.5, -1, 0);
+		builder.hit(0.5, 1, 1);
+		builder.hit(0.5, 1, 0.5);
+		final FlameAccumulator accu = builder.build();
+
+		// the top row of the image is the last one of the accumulator
+		final Palette palette = new RandomPalette(3);
+		final int[] pixels = accu.packedImage(palette, Color.WHITE, new int[12]);
+		final int[] row = new int[4];
+		for (int y = 0; y < 3; y++) {
+			accu.packedRow(palette, Color.WHITE, y, row);
+			for (int x = 0; x < 4; x++) {
+				Assert.assertEquals(row[x], pixels[(2 - y) * 4 + x]);
+			}
+		}
+		Assert.assertEquals(accu.color(palette, Color.WHITE, 0, 0).asPackedRGB(), pixels[8]);
+		Assert.assertEquals(Color.WHITE.asPackedRGB(), pixels[0]);
+	}
+
+	@Test
+	public void testSetBuffered() {
+		final Rectangle frame = FlamePPMMaker.sharkFinFrame();
+		final FlameAccumulator.Builder buffered = new FlameAccumulator.Builder(frame, 100, 80);
+		final FlameAccumulator.Builder atomic = new FlameAccumulator.Builder(frame, 100, 80);
+		atomic.setBuffered(false);
+
+		final RenderSession a = new RenderSession(FlamePPMMaker.sharkFin(), buffered, 42, 4);
+		final RenderSession b = new RenderSession(FlamePPMMaker.sharkFin(), atomic, 42, 4);
+		a.advance(100000);
+		b.advance(100000);
+		// the atomic sink then writes arrays shared with a snapshot
+		final FlameAccumulator before = atomic.build();
+		a.advance(200000);
+		b.advance(200000);
+
+		final FlameAccumulator expected = buffered.build(), actual = atomic.build();
+		Assert.assertEquals(expected.maxHitCount(), actual.maxHitCount());
+		Assert.assertArrayEquals(expected.density(), actual.density());
+		Assert.assertTrue(before.maxHitCount() < actual.maxHitCount());
+		ImageAssert.assertSameImage(expected, actual, new RandomPalette(3));
+	}
+
 	@Test
 	public void testWidth() {
 		Assert.fail("Not yet implemented");
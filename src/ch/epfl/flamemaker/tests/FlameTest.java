@@ -1,18 +1,103 @@
 package ch.epfl.flamemaker.tests;
 
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.Flame;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.FlamePPMMaker;
+import ch.epfl.flamemaker.flame.Precision;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
 public class FlameTest {
 
+	private static final Palette	PALETTE	= new InterpolatedPalette(Arrays.asList(Color.RED, Color.GREEN,
+							Color.BLUE));
+
 	@Test
 	public void testCompute() {
 		Assert.fail("Not yet implemented");
 	}
 
+	@Test
+	public void testEquals() {
+		final Flame flame = FlamePPMMaker.sharkFin();
+		final Flame.Builder builder = new Flame.Builder(flame);
+		final Flame same = builder.build();
+
+		Assert.assertEquals(flame, same);
+		Assert.assertEquals(flame.hashCode(), same.hashCode());
+		Assert.assertEquals(flame.hashCode(), builder.hashCode());
+		// the kernel does not change the fractal
+		Assert.assertEquals(flame, flame.withPrecision(Precision.FAST));
+		Assert.assertEquals(flame.hashCode(), flame.withPrecision(Precision.FAST).hashCode());
+
+		builder.setAffineTransformation(2, new AffineTransformation(0.4810169, 0, 1, 0, 0.4810169, -0.9));
+		Assert.assertFalse(flame.equals(builder.build()));
+		Assert.assertEquals(builder.build().hashCode(), builder.hashCode());
+	}
+
 	@Test
 	public void testFlame() {
 		Assert.fail("Not yet implemented");
 	}
 
+	@Test
+	public void testSpecialize() {
+		// the two fractals use every variation
+		FlameTest.assertSpecialize(FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame());
+		FlameTest.assertSpecialize(FlamePPMMaker.turbulence(), FlamePPMMaker.turbulenceFrame());
+	}
+
+	@Test
+	public void testWithPrecision() {
+		final Flame flame = FlamePPMMaker.sharkFin();
+		final Flame single = flame.withPrecision(Precision.SINGLE);
+
+		Assert.assertEquals(Precision.DOUBLE, flame.precision());
+		Assert.assertEquals(Precision.SINGLE, single.precision());
+		Assert.assertSame(single, single.withPrecision(Precision.SINGLE));
+		Assert.assertSame(single, single.specialize());
+		Assert.assertEquals(Precision.DOUBLE, single.withPrecision(Precision.DOUBLE).precision());
+
+		Assert.assertEquals(Precision.FAST, flame.withPrecision(Precision.FAST).precision());
+
+		FlameTest.assertCloseImages(flame, FlamePPMMaker.sharkFinFrame());
+		FlameTest.assertCloseImages(FlamePPMMaker.turbulence(), FlamePPMMaker.turbulenceFrame());
+	}
+
+	private static void assertCloseImages(final Flame flame, final Rectangle frame) {
+		// the same seed draws the same transformations, and the chaos game
+		// contracts the rounding errors: only a few points may change
+		final FlameAccumulator.Builder doubleImage = new FlameAccumulator.Builder(frame, 100, 80);
+		flame.compute(200000, doubleImage, 42);
+		final FlameAccumulator a = doubleImage.build();
+
+		for (final Precision precision : Arrays.asList(Precision.SINGLE, Precision.FAST)) {
+			final FlameAccumulator.Builder image = new FlameAccumulator.Builder(frame, 100, 80);
+			flame.withPrecision(precision).compute(200000, image, 42);
+			ImageAssert.assertCloseImage(precision.name(), a, image.build(), FlameTest.PALETTE, a.width()
+					* a.height() / 10);
+		}
+	}
+
+	private static void assertSpecialize(final Flame flame, final Rectangle frame) {
+		final Flame specialized = flame.specialize();
+
+		Assert.assertFalse(flame.isSpecialized());
+		Assert.assertTrue(specialized.isSpecialized());
+
+		final FlameAccumulator.Builder interpreted = new FlameAccumulator.Builder(frame, 100, 80);
+		final FlameAccumulator.Builder generated = new FlameAccumulator.Builder(frame, 100, 80);
+		flame.compute(200000, interpreted, 42);
+		specialized.compute(200000, generated, 42);
+
+		ImageAssert.assertSameImage(interpreted.build(), generated.build(), FlameTest.PALETTE);
+	}
 }
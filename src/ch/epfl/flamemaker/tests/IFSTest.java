@@ -52,6 +52,37 @@ public class IFSTest {
 		}
 	}
 
+	@Test
+	public final void testComputeSeed() {
+		this.transformations.add(new AffineTransformation(0.5, 0, 0, 0, 0.5, 0));
+		this.transformations.add(new AffineTransformation(0.5, 0, 5, 0, 0.5, 0));
+		this.transformations.add(new AffineTransformation(0.5, 0, 0, 0, 0.5, 5));
+		final IFS ifs = new IFS(this.transformations);
+
+		final IFSAccumulator a = ifs.compute(this.frame, 50, 50, 1, 42);
+		final IFSAccumulator b = ifs.compute(this.frame, 50, 50, 1, 42);
+
+		for (int x = 0; x < 50; x++) {
+			for (int y = 0; y < 50; y++) {
+				Assert.assertEquals(a.isHit(x, y), b.isHit(x, y));
+			}
+		}
+	}
+
+	@Test
+	public final void testComputeReseed() {
+		this.transformations.add(new AffineTransformation(0.5, 0, 0, 0, 0.5, 0));
+		this.transformations.add(new AffineTransformation(1e30, 0, 1, 0, 1e30, 1));
+		final IFS ifs = new IFS(this.transformations);
+
+		// the second map throws the point away for good: it is reseeded
+		// on almost every step, without looping forever
+		final IFSAccumulator accu = ifs.compute(this.frame, 50, 50, 1, 42);
+		Assert.assertTrue(accu.reseeds() > 1000);
+		Assert.assertEquals(0, new IFS(this.transformations.subList(0, 1)).compute(this.frame, 50, 50, 1, 42)
+				.reseeds());
+	}
+
 	@Test
 	public final void testIFS() {
 		this.transformations.add(AffineTransformation.IDENTITY);
@@ -0,0 +1,55 @@
+package ch.epfl.flamemaker.tests;
+
+import org.junit.Assert;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+
+// compares the images of two accumulators colored on black
+public final class ImageAssert {
+
+	// asserts that the channels of the two images differ by less than
+	// maxDifference in total, once packed
+	public static void assertCloseImage(final String message, final FlameAccumulator expected,
+			final FlameAccumulator actual, final Palette palette, final int maxDifference) {
+		ImageAssert.assertSameSize(expected, actual);
+
+		int difference = 0;
+		for (int x = 0; x < expected.width(); x++) {
+			for (int y = 0; y < expected.height(); y++) {
+				final int p = expected.color(palette, Color.BLACK, x, y).asPackedRGB();
+				final int q = actual.color(palette, Color.BLACK, x, y).asPackedRGB();
+				for (int shift = 0; shift < 24; shift += 8) {
+					difference += Math.abs((p >> shift & 0xFF) - (q >> shift & 0xFF));
+				}
+			}
+		}
+		Assert.assertTrue(message, difference < maxDifference);
+	}
+
+	// asserts that every pixel of the two images has exactly the same color
+	public static void assertSameImage(final FlameAccumulator expected, final FlameAccumulator actual,
+			final Palette palette) {
+		ImageAssert.assertSameSize(expected, actual);
+
+		for (int x = 0; x < expected.width(); x++) {
+			for (int y = 0; y < expected.height(); y++) {
+				final Color c = expected.color(palette, Color.BLACK, x, y);
+				final Color d = actual.color(palette, Color.BLACK, x, y);
+				final String pixel = "(" + x + ", " + y + ")";
+				Assert.assertEquals(pixel, c.red(), d.red(), 0);
+				Assert.assertEquals(pixel, c.green(), d.green(), 0);
+				Assert.assertEquals(pixel, c.blue(), d.blue(), 0);
+			}
+		}
+	}
+
+	private static void assertSameSize(final FlameAccumulator expected, final FlameAccumulator actual) {
+		Assert.assertEquals(expected.width(), actual.width());
+		Assert.assertEquals(expected.height(), actual.height());
+	}
+
+	private ImageAssert() {
+	}
+}
@@ -0,0 +1,42 @@
+package ch.epfl.flamemaker.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.geometry2d.PixelMapper;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class PixelMapperTest {
+
+	@Test
+	public void testIndex() {
+		final PixelMapper mapper = new PixelMapper(new Rectangle(Point.ORIGIN, 4, 2), 8, 4);
+		Assert.assertEquals(0, mapper.index(-2, -1));
+		Assert.assertEquals(7, mapper.index(1.99, -0.99));
+		Assert.assertEquals(8, mapper.index(-2, -0.5));
+		Assert.assertEquals(3 * 8 + 4, mapper.index(0.1, 0.9));
+	}
+
+	@Test
+	public void testIndexOutside() {
+		final PixelMapper mapper = new PixelMapper(new Rectangle(Point.ORIGIN, 4, 2), 8, 4);
+		Assert.assertEquals(-1, mapper.index(-2.01, 0));
+		Assert.assertEquals(-1, mapper.index(2, 0));
+		Assert.assertEquals(-1, mapper.index(0, -1.01));
+		Assert.assertEquals(-1, mapper.index(0, 1));
+		Assert.assertEquals(-1, mapper.index(1e30, -1e30));
+		Assert.assertEquals(-1, mapper.index(Double.NaN, 0));
+		Assert.assertEquals(-1, mapper.index(0, Double.NEGATIVE_INFINITY));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPixelMapperEmpty() {
+		new PixelMapper(new Rectangle(Point.ORIGIN, 1, 1), 0, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPixelMapperTooLarge() {
+		new PixelMapper(new Rectangle(Point.ORIGIN, 1, 1), 100000, 100000);
+	}
+}
@@ -0,0 +1,141 @@
+package ch.epfl.flamemaker.tests;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.flame.FlamePPMMaker;
+import ch.epfl.flamemaker.gui.PreviewRenderer;
+
+public class PreviewRendererTest {
+
+	// queues every image published by its renderer
+	private static class Recorder implements Runnable {
+
+		final LinkedBlockingQueue<PreviewRenderer.Snapshot>	snapshots;
+		final PreviewRenderer					renderer;
+
+		Recorder(final int density) {
+			this.snapshots = new LinkedBlockingQueue<PreviewRenderer.Snapshot>();
+			this.renderer = new PreviewRenderer(Color.BLACK, new InterpolatedPalette(Arrays.asList(
+					Color.RED, Color.BLUE)), density, this);
+		}
+
+		@Override
+		public void run() {
+			// called by the thread just after publishing
+			this.snapshots.add(this.renderer.latest());
+		}
+
+		PreviewRenderer.Snapshot next() throws InterruptedException {
+			final PreviewRenderer.Snapshot snapshot = this.snapshots.poll(10, TimeUnit.SECONDS);
+			Assert.assertNotNull("No image published", snapshot);
+			return snapshot;
+		}
+
+		PreviewRenderer.Snapshot last() throws InterruptedException {
+			PreviewRenderer.Snapshot snapshot = this.next();
+			while (snapshot.progress() < 1) {
+				snapshot = this.next();
+			}
+			return snapshot;
+		}
+	}
+
+	private static boolean running() {
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("preview") && thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void waitStopped() throws InterruptedException {
+		final long end = System.currentTimeMillis() + 10000;
+		while (PreviewRendererTest.running() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertFalse(PreviewRendererTest.running());
+	}
+
+	@Test
+	public void testRecolor() throws InterruptedException {
+		final Recorder recorder = new Recorder(2);
+		recorder.renderer.render(FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame(), 50, 40);
+		final PreviewRenderer.Snapshot done = recorder.last();
+		final int[] before = done.image().getRGB(0, 0, 50, 40, null, 0, 50);
+
+		// colored again without computing, even once done
+		recorder.renderer.recolor(new InterpolatedPalette(Arrays.asList(Color.GREEN, Color.GREEN)),
+				Color.WHITE);
+		final PreviewRenderer.Snapshot recolored = recorder.next();
+		Assert.assertEquals(1, recolored.progress(), 0);
+		Assert.assertFalse(Arrays.equals(before, recolored.image().getRGB(0, 0, 50, 40, null, 0, 50)));
+		Assert.assertNotSame(done.image(), recolored.image());
+
+		// the two images are used in turn, not allocated again
+		recorder.renderer.recolor(new InterpolatedPalette(Arrays.asList(Color.RED, Color.BLUE)), Color.BLACK);
+		Assert.assertSame(done.image(), recorder.next().image());
+
+		recorder.renderer.stop();
+		PreviewRendererTest.waitStopped();
+	}
+
+	@Test
+	public void testRenderSuperseded() throws InterruptedException {
+		final Recorder recorder = new Recorder(1000);
+
+		// the thread cannot start the first fractal before the second one
+		// is asked
+		synchronized (recorder.renderer) {
+			recorder.renderer.render(FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame(), 60, 40);
+			recorder.renderer.render(FlamePPMMaker.turbulence(), FlamePPMMaker.turbulenceFrame(), 20, 10);
+		}
+		Assert.assertEquals(20, recorder.next().image().getWidth());
+
+		// a fractal asked between two steps: the old one is not colored
+		// anymore
+		final PreviewRenderer.Snapshot published;
+		synchronized (recorder.renderer) {
+			recorder.renderer.render(FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame(), 30, 20);
+			// only the last listener called may still be queuing
+			published = recorder.renderer.latest();
+			recorder.snapshots.clear();
+		}
+		PreviewRenderer.Snapshot snapshot = recorder.next();
+		while (snapshot.image().getWidth() != 30) {
+			Assert.assertSame(published, snapshot);
+			snapshot = recorder.next();
+		}
+
+		recorder.renderer.stop();
+		PreviewRendererTest.waitStopped();
+		for (final PreviewRenderer.Snapshot other : recorder.snapshots) {
+			Assert.assertEquals(30, other.image().getWidth());
+		}
+	}
+
+	@Test
+	public void testStop() throws InterruptedException {
+		final Recorder recorder = new Recorder(1000);
+		recorder.renderer.render(FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame(), 60, 40);
+		recorder.next();
+		recorder.renderer.stop();
+		PreviewRendererTest.waitStopped();
+
+		// the last image is kept, and the next fractal starts it again
+		Assert.assertNotNull(recorder.renderer.latest());
+		recorder.snapshots.clear();
+		recorder.renderer.render(FlamePPMMaker.sharkFin(), FlamePPMMaker.sharkFinFrame(), 30, 20);
+		Assert.assertEquals(30, recorder.next().image().getWidth());
+
+		recorder.renderer.stop();
+		PreviewRendererTest.waitStopped();
+	}
+}
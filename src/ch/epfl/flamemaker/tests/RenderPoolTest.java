@@ -0,0 +1,62 @@
+package ch.epfl.flamemaker.tests;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.extra.RenderPool;
+
+public class RenderPoolTest {
+
+	private static ArrayList<Runnable> slowTasks(final AtomicInteger ended, final int count) {
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+		for (int i = 0; i < count; i++) {
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					final long end = System.nanoTime() + 20000000;
+					while (System.nanoTime() < end) {
+						// busy, as an interrupted sleep would end early
+					}
+					ended.incrementAndGet();
+				}
+			});
+		}
+		return tasks;
+	}
+
+	@Test
+	public void testInvokeAllFailure() {
+		final AtomicInteger ended = new AtomicInteger();
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+		tasks.add(new Runnable() {
+
+			@Override
+			public void run() {
+				throw new IllegalStateException();
+			}
+		});
+		tasks.addAll(RenderPoolTest.slowTasks(ended, 4));
+
+		try {
+			RenderPool.invokeAll(tasks);
+			Assert.fail("The failure of the task is not thrown");
+		} catch (final IllegalStateException e) {
+			// the other tasks are not left running
+			Assert.assertEquals(4, ended.get());
+		}
+	}
+
+	@Test
+	public void testInvokeAllInterrupted() {
+		final AtomicInteger ended = new AtomicInteger();
+		Thread.currentThread().interrupt();
+		RenderPool.invokeAll(RenderPoolTest.slowTasks(ended, 4));
+
+		Assert.assertEquals(4, ended.get());
+		Assert.assertTrue(Thread.interrupted());
+	}
+}
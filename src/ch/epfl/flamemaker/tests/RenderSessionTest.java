@@ -0,0 +1,102 @@
+package ch.epfl.flamemaker.tests;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.Flame;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.FlamePPMMaker;
+import ch.epfl.flamemaker.flame.FlameTransformation;
+import ch.epfl.flamemaker.flame.RenderSession;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class RenderSessionTest {
+
+	private static final Palette	PALETTE	= new InterpolatedPalette(Arrays.asList(Color.RED, Color.GREEN,
+							Color.BLUE));
+
+	@Test
+	public void testAdvance() {
+		final Flame flame = FlamePPMMaker.sharkFin();
+		final Rectangle frame = FlamePPMMaker.sharkFinFrame();
+
+		final RenderSession once = new RenderSession(flame, new FlameAccumulator.Builder(frame, 100, 80), 42);
+		once.advance(400000);
+
+		final RenderSession steps = new RenderSession(flame, new FlameAccumulator.Builder(frame, 100, 80), 42);
+		for (int i = 0; i < 4; i++) {
+			steps.advance(100000);
+		}
+		Assert.assertEquals(400000, steps.total());
+
+		ImageAssert.assertSameImage(once.image().build(), steps.image().build(), RenderSessionTest.PALETTE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAdvanceNegative() {
+		new RenderSession(FlamePPMMaker.sharkFin(), new FlameAccumulator.Builder(new Rectangle(new Point(0,
+				0), 1, 1), 10, 10)).advance(-1);
+	}
+
+	@Test
+	public void testEmptyFlame() {
+		final Flame flame = new Flame(Arrays.<FlameTransformation> asList());
+		final RenderSession session = new RenderSession(flame, new FlameAccumulator.Builder(new Rectangle(
+				new Point(0, 0), 1, 1), 10, 10));
+		session.advance(1000);
+		Assert.assertSame(flame, session.flame());
+		Assert.assertEquals(1000, session.total());
+	}
+
+	@Test
+	public void testReseed() {
+		// the Spherical variation divides the origin by zero: every
+		// walker escapes once, then stays on the unit circle
+		final Flame flame = new Flame(Arrays.asList(new FlameTransformation(AffineTransformation.IDENTITY,
+				new double[] { 0, 0, 1, 0, 0, 0 })));
+		final Rectangle frame = new Rectangle(new Point(0, 0), 4, 4);
+
+		final RenderSession single = new RenderSession(flame, new FlameAccumulator.Builder(frame, 40, 40), 42,
+				1);
+		single.advance(100000);
+		final RenderSession many = new RenderSession(flame, new FlameAccumulator.Builder(frame, 40, 40), 42,
+				7);
+		many.advance(100000);
+
+		Assert.assertEquals(64, single.reseeds());
+		Assert.assertEquals(64, many.reseeds());
+
+		final FlameAccumulator a = single.image().build();
+		Assert.assertTrue(a.maxHitCount() > 0);
+		ImageAssert.assertSameImage(a, many.image().build(), RenderSessionTest.PALETTE);
+	}
+
+	@Test
+	public void testThreads() {
+		final Flame flame = FlamePPMMaker.sharkFin();
+		final Rectangle frame = FlamePPMMaker.sharkFinFrame();
+
+		final RenderSession single = new RenderSession(flame, new FlameAccumulator.Builder(frame, 100, 80),
+				42, 1);
+		single.advance(300001);
+
+		final RenderSession many = new RenderSession(flame, new FlameAccumulator.Builder(frame, 100, 80), 42,
+				7);
+		many.advance(100000);
+		many.image().build();
+		many.advance(200001);
+		Assert.assertEquals(0, many.reseeds());
+
+		final FlameAccumulator a = single.image().build(), b = many.image().build();
+		Assert.assertEquals(a.maxHitCount(), b.maxHitCount());
+		Assert.assertArrayEquals(a.density(), b.density());
+		ImageAssert.assertSameImage(a, b, RenderSessionTest.PALETTE);
+	}
+}
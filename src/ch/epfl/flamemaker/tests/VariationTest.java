@@ -5,6 +5,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import ch.epfl.flamemaker.flame.Variation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 
 public class VariationTest {
@@ -37,6 +38,25 @@ public class VariationTest {
 		Assert.assertTrue(this.point.equals(p));
 	}
 
+	@Test
+	public void testTransformPointInPlace() {
+		final double x = 0.3, y = -0.7, r2 = x * x + y * y, r = Math.sqrt(r2);
+		final double[][] refs = { { x, y }, { Math.sin(x), Math.sin(y) }, { x / r2, y / r2 },
+				{ x * Math.sin(r2) - y * Math.cos(r2), x * Math.cos(r2) + y * Math.sin(r2) },
+				{ (x - y) * (x + y) / r, 2 * x * y / r }, { 4 * x / (r2 + 4), 4 * y / (r2 + 4) } };
+
+		final MutablePoint result = new MutablePoint();
+		for (final Variation v : Variation.ALL_VARIATIONS) {
+			v.transformPoint(x, y, result);
+			Assert.assertEquals(refs[v.index()][0], result.x(), 0.000000001);
+			Assert.assertEquals(refs[v.index()][1], result.y(), 0.000000001);
+
+			final Point p = v.transformPoint(new Point(x, y));
+			Assert.assertEquals(refs[v.index()][0], p.x(), 0.000000001);
+			Assert.assertEquals(refs[v.index()][1], p.y(), 0.000000001);
+		}
+	}
+
 	@Test
 	public void testVariation() {
 		Assert.assertEquals(6, Variation.ALL_VARIATIONS.size());